@@ -2,6 +2,7 @@ package com.kmg.ocr.api;
 
 import com.kmg.ocr.dto.UsageAdjustmentRequest;
 import com.kmg.ocr.model.CredentialSummary;
+import com.kmg.ocr.service.CredentialRegistry;
 import com.kmg.ocr.service.CredentialScannerService;
 import com.kmg.ocr.service.QuotaService;
 import jakarta.validation.Valid;
@@ -15,10 +16,16 @@ import java.util.List;
 public class CredentialController {
     private final CredentialScannerService credentialScannerService;
     private final QuotaService quotaService;
+    private final CredentialRegistry credentialRegistry;
 
-    public CredentialController(CredentialScannerService credentialScannerService, QuotaService quotaService) {
+    public CredentialController(
+            CredentialScannerService credentialScannerService,
+            QuotaService quotaService,
+            CredentialRegistry credentialRegistry
+    ) {
         this.credentialScannerService = credentialScannerService;
         this.quotaService = quotaService;
+        this.credentialRegistry = credentialRegistry;
     }
 
     @GetMapping
@@ -37,7 +44,7 @@ public class CredentialController {
             @PathVariable String id,
             @Valid @RequestBody UsageAdjustmentRequest request
     ) {
-        CredentialSummary updated = quotaService.adjustUsage(id, request.usedOverride(), request.reason());
+        CredentialSummary updated = credentialRegistry.adjustUsage(id, request.usedOverride(), request.reason());
         return ResponseEntity.ok(updated);
     }
 }
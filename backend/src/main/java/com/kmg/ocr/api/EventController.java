@@ -2,10 +2,14 @@ package com.kmg.ocr.api;
 
 import com.kmg.ocr.service.EventService;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 public class EventController {
@@ -16,7 +20,24 @@ public class EventController {
     }
 
     @GetMapping("/events")
-    public SseEmitter streamEvents() {
-        return eventService.subscribe();
+    public SseEmitter streamEvents(
+            @RequestParam(value = "jobId", required = false) String jobId,
+            @RequestParam(value = "types", required = false) List<String> types,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader
+    ) {
+        String lastEventId = lastEventIdHeader != null && !lastEventIdHeader.isBlank() ? lastEventIdHeader : lastEventIdParam;
+        return eventService.subscribe(jobId, types, parseEventId(lastEventId));
+    }
+
+    private Long parseEventId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
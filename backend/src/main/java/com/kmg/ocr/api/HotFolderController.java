@@ -0,0 +1,24 @@
+package com.kmg.ocr.api;
+
+import com.kmg.ocr.dto.HotFolderView;
+import com.kmg.ocr.service.HotFolderService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/hot-folders")
+public class HotFolderController {
+    private final HotFolderService hotFolderService;
+
+    public HotFolderController(HotFolderService hotFolderService) {
+        this.hotFolderService = hotFolderService;
+    }
+
+    @GetMapping
+    public List<HotFolderView> status() {
+        return hotFolderService.status();
+    }
+}
@@ -2,6 +2,8 @@ package com.kmg.ocr.api;
 
 import com.kmg.ocr.dto.CreateJobRequest;
 import com.kmg.ocr.dto.CreateJobResponse;
+import com.kmg.ocr.dto.DiscoverJobRequest;
+import com.kmg.ocr.dto.JobPageResponse;
 import com.kmg.ocr.dto.JobView;
 import com.kmg.ocr.service.JobService;
 import jakarta.validation.Valid;
@@ -24,9 +26,18 @@ public class JobController {
         return new CreateJobResponse(jobService.createJob(request));
     }
 
+    @PostMapping("/discover")
+    public CreateJobResponse discoverJob(@Valid @RequestBody DiscoverJobRequest request) {
+        return new CreateJobResponse(jobService.discoverJob(request));
+    }
+
     @GetMapping
-    public List<JobView> listJobs() {
-        return jobService.listJobs();
+    public JobPageResponse listJobs(
+            @RequestParam(value = "status", required = false) List<String> status,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return jobService.listJobs(status, page, size);
     }
 
     @GetMapping("/{id}")
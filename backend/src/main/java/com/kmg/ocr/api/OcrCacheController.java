@@ -0,0 +1,29 @@
+package com.kmg.ocr.api;
+
+import com.kmg.ocr.dto.OcrCacheStatsResponse;
+import com.kmg.ocr.service.OcrResultCache;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/ocr-cache")
+public class OcrCacheController {
+    private final OcrResultCache ocrResultCache;
+
+    public OcrCacheController(OcrResultCache ocrResultCache) {
+        this.ocrResultCache = ocrResultCache;
+    }
+
+    @GetMapping
+    public OcrCacheStatsResponse stats() {
+        return ocrResultCache.stats();
+    }
+
+    @DeleteMapping
+    public OcrCacheStatsResponse clear() {
+        ocrResultCache.clear();
+        return ocrResultCache.stats();
+    }
+}
@@ -1,11 +1,14 @@
 package com.kmg.ocr.config;
 
+import com.kmg.ocr.model.KeySelectionStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @Validated
 @ConfigurationProperties(prefix = "ocr")
@@ -17,8 +20,38 @@ public class OcrProperties {
     @NotNull
     private Credentials credentials = new Credentials();
     @NotNull
+    private Quota quota = new Quota();
+    @NotNull
+    private RateLimit rateLimit = new RateLimit();
+    @NotNull
+    private Retry retry = new Retry();
+    @NotNull
     private Output output = new Output();
     @NotNull
+    private Jobs jobs = new Jobs();
+    @NotNull
+    private Vision vision = new Vision();
+    @NotNull
+    private Preprocess preprocess = new Preprocess();
+    @NotNull
+    private BlankPage blankPage = new BlankPage();
+    @NotNull
+    private Cache cache = new Cache();
+    @NotNull
+    private Checkpoint checkpoint = new Checkpoint();
+    @NotNull
+    private Events events = new Events();
+    @NotNull
+    private ReadPool readPool = new ReadPool();
+    @NotNull
+    private FolderIndex folderIndex = new FolderIndex();
+    @NotNull
+    private Manifest manifest = new Manifest();
+    @NotNull
+    private HotFolder hotFolder = new HotFolder();
+    @NotNull
+    private Pdf pdf = new Pdf();
+    @NotNull
     private State state = new State();
     @NotNull
     private Logs logs = new Logs();
@@ -49,6 +82,30 @@ public class OcrProperties {
         this.credentials = credentials;
     }
 
+    public Quota getQuota() {
+        return quota;
+    }
+
+    public void setQuota(Quota quota) {
+        this.quota = quota;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public void setRetry(Retry retry) {
+        this.retry = retry;
+    }
+
     public Output getOutput() {
         return output;
     }
@@ -57,6 +114,102 @@ public class OcrProperties {
         this.output = output;
     }
 
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    public Vision getVision() {
+        return vision;
+    }
+
+    public void setVision(Vision vision) {
+        this.vision = vision;
+    }
+
+    public Preprocess getPreprocess() {
+        return preprocess;
+    }
+
+    public void setPreprocess(Preprocess preprocess) {
+        this.preprocess = preprocess;
+    }
+
+    public BlankPage getBlankPage() {
+        return blankPage;
+    }
+
+    public void setBlankPage(BlankPage blankPage) {
+        this.blankPage = blankPage;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public Events getEvents() {
+        return events;
+    }
+
+    public void setEvents(Events events) {
+        this.events = events;
+    }
+
+    public ReadPool getReadPool() {
+        return readPool;
+    }
+
+    public void setReadPool(ReadPool readPool) {
+        this.readPool = readPool;
+    }
+
+    public FolderIndex getFolderIndex() {
+        return folderIndex;
+    }
+
+    public void setFolderIndex(FolderIndex folderIndex) {
+        this.folderIndex = folderIndex;
+    }
+
+    public Manifest getManifest() {
+        return manifest;
+    }
+
+    public void setManifest(Manifest manifest) {
+        this.manifest = manifest;
+    }
+
+    public HotFolder getHotFolder() {
+        return hotFolder;
+    }
+
+    public void setHotFolder(HotFolder hotFolder) {
+        this.hotFolder = hotFolder;
+    }
+
+    public Pdf getPdf() {
+        return pdf;
+    }
+
+    public void setPdf(Pdf pdf) {
+        this.pdf = pdf;
+    }
+
     public State getState() {
         return state;
     }
@@ -129,6 +282,177 @@ public class OcrProperties {
         }
     }
 
+    public static class Quota {
+        private int reservationBlock = 50;
+
+        public int getReservationBlock() {
+            return reservationBlock;
+        }
+
+        public void setReservationBlock(int reservationBlock) {
+            this.reservationBlock = reservationBlock;
+        }
+    }
+
+    public static class RateLimit {
+        private boolean enabled = true;
+        private int initialPerMinute = 600;
+        private int minPerMinute = 30;
+        private int maxPerMinute = 1800;
+        private int increasePerMinute = 10;
+        private double decreaseFactor = 0.5;
+        private int burstSeconds = 10;
+        private long cooldownMs = 10000;
+        private int maxThrottleRetries = 20;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialPerMinute() {
+            return initialPerMinute;
+        }
+
+        public void setInitialPerMinute(int initialPerMinute) {
+            this.initialPerMinute = initialPerMinute;
+        }
+
+        public int getMinPerMinute() {
+            return minPerMinute;
+        }
+
+        public void setMinPerMinute(int minPerMinute) {
+            this.minPerMinute = minPerMinute;
+        }
+
+        public int getMaxPerMinute() {
+            return maxPerMinute;
+        }
+
+        public void setMaxPerMinute(int maxPerMinute) {
+            this.maxPerMinute = maxPerMinute;
+        }
+
+        public int getIncreasePerMinute() {
+            return increasePerMinute;
+        }
+
+        public void setIncreasePerMinute(int increasePerMinute) {
+            this.increasePerMinute = increasePerMinute;
+        }
+
+        public double getDecreaseFactor() {
+            return decreaseFactor;
+        }
+
+        public void setDecreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+        }
+
+        public int getBurstSeconds() {
+            return burstSeconds;
+        }
+
+        public void setBurstSeconds(int burstSeconds) {
+            this.burstSeconds = burstSeconds;
+        }
+
+        public long getCooldownMs() {
+            return cooldownMs;
+        }
+
+        public void setCooldownMs(long cooldownMs) {
+            this.cooldownMs = cooldownMs;
+        }
+
+        public int getMaxThrottleRetries() {
+            return maxThrottleRetries;
+        }
+
+        public void setMaxThrottleRetries(int maxThrottleRetries) {
+            this.maxThrottleRetries = maxThrottleRetries;
+        }
+    }
+
+    public static class Retry {
+        private int maxAttempts = 5;
+        private long initialBackoffMs = 1000;
+        private long maxBackoffMs = 60000;
+        private double multiplier = 2.0;
+        private long requestTimeoutMs = 120000;
+        private double budgetRatio = 0.1;
+        private int budgetMinTokens = 20;
+        private int budgetMaxTokens = 500;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        public void setInitialBackoffMs(long initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public long getRequestTimeoutMs() {
+            return requestTimeoutMs;
+        }
+
+        public void setRequestTimeoutMs(long requestTimeoutMs) {
+            this.requestTimeoutMs = requestTimeoutMs;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getBudgetMinTokens() {
+            return budgetMinTokens;
+        }
+
+        public void setBudgetMinTokens(int budgetMinTokens) {
+            this.budgetMinTokens = budgetMinTokens;
+        }
+
+        public int getBudgetMaxTokens() {
+            return budgetMaxTokens;
+        }
+
+        public void setBudgetMaxTokens(int budgetMaxTokens) {
+            this.budgetMaxTokens = budgetMaxTokens;
+        }
+    }
+
     public static class Output {
         @NotBlank
         private String pdfDir;
@@ -152,6 +476,501 @@ public class OcrProperties {
         }
     }
 
+    public static class Jobs {
+        private int maxConcurrent = 2;
+        private int defaultPageSize = 20;
+        private int maxPageSize = 200;
+        private int maxDiscoveredFolders = 20000;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getDefaultPageSize() {
+            return defaultPageSize;
+        }
+
+        public void setDefaultPageSize(int defaultPageSize) {
+            this.defaultPageSize = defaultPageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getMaxDiscoveredFolders() {
+            return maxDiscoveredFolders;
+        }
+
+        public void setMaxDiscoveredFolders(int maxDiscoveredFolders) {
+            this.maxDiscoveredFolders = maxDiscoveredFolders;
+        }
+    }
+
+    public static class Vision {
+        private int batchSize = 16;
+        private long maxBatchBytes = 8L * 1024 * 1024;
+        private boolean asyncEnabled = false;
+        private int maxInFlight = 16;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getMaxBatchBytes() {
+            return maxBatchBytes;
+        }
+
+        public void setMaxBatchBytes(long maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
+        public boolean isAsyncEnabled() {
+            return asyncEnabled;
+        }
+
+        public void setAsyncEnabled(boolean asyncEnabled) {
+            this.asyncEnabled = asyncEnabled;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    public static class Preprocess {
+        private boolean enabled = true;
+        private int maxLongEdge = 4096;
+        private boolean grayscale = false;
+        private String format = "jpeg";
+        private float jpegQuality = 0.9f;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxLongEdge() {
+            return maxLongEdge;
+        }
+
+        public void setMaxLongEdge(int maxLongEdge) {
+            this.maxLongEdge = maxLongEdge;
+        }
+
+        public boolean isGrayscale() {
+            return grayscale;
+        }
+
+        public void setGrayscale(boolean grayscale) {
+            this.grayscale = grayscale;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public void setFormat(String format) {
+            this.format = format;
+        }
+
+        public float getJpegQuality() {
+            return jpegQuality;
+        }
+
+        public void setJpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+        }
+    }
+
+    public static class BlankPage {
+        private boolean enabled = false;
+        private double marginRatio = 0.03;
+        private int inkContrast = 48;
+        private double maxInkRatio = 0.00002;
+        private double maxStdDev = 12.0;
+        private int sampleSize = 2048;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getMarginRatio() {
+            return marginRatio;
+        }
+
+        public void setMarginRatio(double marginRatio) {
+            this.marginRatio = marginRatio;
+        }
+
+        public int getInkContrast() {
+            return inkContrast;
+        }
+
+        public void setInkContrast(int inkContrast) {
+            this.inkContrast = inkContrast;
+        }
+
+        public double getMaxInkRatio() {
+            return maxInkRatio;
+        }
+
+        public void setMaxInkRatio(double maxInkRatio) {
+            this.maxInkRatio = maxInkRatio;
+        }
+
+        public double getMaxStdDev() {
+            return maxStdDev;
+        }
+
+        public void setMaxStdDev(double maxStdDev) {
+            this.maxStdDev = maxStdDev;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        public void setSampleSize(int sampleSize) {
+            this.sampleSize = sampleSize;
+        }
+    }
+
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxSizeMb = 256;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSizeMb() {
+            return maxSizeMb;
+        }
+
+        public void setMaxSizeMb(int maxSizeMb) {
+            this.maxSizeMb = maxSizeMb;
+        }
+    }
+
+    public static class Checkpoint {
+        private long flushIntervalMs = 500;
+        private int maxBatchPages = 64;
+        private boolean journalEnabled = true;
+        private String journalDir;
+        private boolean journalCompress = true;
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxBatchPages() {
+            return maxBatchPages;
+        }
+
+        public void setMaxBatchPages(int maxBatchPages) {
+            this.maxBatchPages = maxBatchPages;
+        }
+
+        public boolean isJournalEnabled() {
+            return journalEnabled;
+        }
+
+        public void setJournalEnabled(boolean journalEnabled) {
+            this.journalEnabled = journalEnabled;
+        }
+
+        public String getJournalDir() {
+            return journalDir;
+        }
+
+        public void setJournalDir(String journalDir) {
+            this.journalDir = journalDir;
+        }
+
+        public boolean isJournalCompress() {
+            return journalCompress;
+        }
+
+        public void setJournalCompress(boolean journalCompress) {
+            this.journalCompress = journalCompress;
+        }
+    }
+
+    public static class Events {
+        private int subscriberQueueSize = 256;
+        private int progressPerSecond = 4;
+        private int dispatchThreads = 2;
+        private int replayBufferSize = 1000;
+
+        public int getSubscriberQueueSize() {
+            return subscriberQueueSize;
+        }
+
+        public void setSubscriberQueueSize(int subscriberQueueSize) {
+            this.subscriberQueueSize = subscriberQueueSize;
+        }
+
+        public int getProgressPerSecond() {
+            return progressPerSecond;
+        }
+
+        public void setProgressPerSecond(int progressPerSecond) {
+            this.progressPerSecond = progressPerSecond;
+        }
+
+        public int getDispatchThreads() {
+            return dispatchThreads;
+        }
+
+        public void setDispatchThreads(int dispatchThreads) {
+            this.dispatchThreads = dispatchThreads;
+        }
+
+        public int getReplayBufferSize() {
+            return replayBufferSize;
+        }
+
+        public void setReplayBufferSize(int replayBufferSize) {
+            this.replayBufferSize = replayBufferSize;
+        }
+    }
+
+    public static class ReadPool {
+        private boolean enabled = true;
+        private int maxSize = 4;
+        private long connectionTimeoutMs = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getConnectionTimeoutMs() {
+            return connectionTimeoutMs;
+        }
+
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) {
+            this.connectionTimeoutMs = connectionTimeoutMs;
+        }
+    }
+
+    public static class FolderIndex {
+        private boolean watchEnabled = true;
+        private int maxEntries = 256;
+        private int scanThreads = 4;
+
+        public boolean isWatchEnabled() {
+            return watchEnabled;
+        }
+
+        public void setWatchEnabled(boolean watchEnabled) {
+            this.watchEnabled = watchEnabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public int getScanThreads() {
+            return scanThreads;
+        }
+
+        public void setScanThreads(int scanThreads) {
+            this.scanThreads = scanThreads;
+        }
+    }
+
+    public static class Manifest {
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class HotFolder {
+        private boolean enabled = false;
+        private List<String> folders = new ArrayList<>();
+        private long pollIntervalMs = 2000;
+        private long settleMs = 5000;
+        private int publishPages = 100;
+        private long publishIntervalMs = 300000;
+        private int maxPagesPerMinute = 120;
+        private int minRemainingUnits = 0;
+        private int maxAttempts = 3;
+        private KeySelectionStrategy strategy = KeySelectionStrategy.MAX_REMAINING;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getFolders() {
+            return folders;
+        }
+
+        public void setFolders(List<String> folders) {
+            this.folders = folders;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public long getSettleMs() {
+            return settleMs;
+        }
+
+        public void setSettleMs(long settleMs) {
+            this.settleMs = settleMs;
+        }
+
+        public int getPublishPages() {
+            return publishPages;
+        }
+
+        public void setPublishPages(int publishPages) {
+            this.publishPages = publishPages;
+        }
+
+        public long getPublishIntervalMs() {
+            return publishIntervalMs;
+        }
+
+        public void setPublishIntervalMs(long publishIntervalMs) {
+            this.publishIntervalMs = publishIntervalMs;
+        }
+
+        public int getMaxPagesPerMinute() {
+            return maxPagesPerMinute;
+        }
+
+        public void setMaxPagesPerMinute(int maxPagesPerMinute) {
+            this.maxPagesPerMinute = maxPagesPerMinute;
+        }
+
+        public int getMinRemainingUnits() {
+            return minRemainingUnits;
+        }
+
+        public void setMinRemainingUnits(int minRemainingUnits) {
+            this.minRemainingUnits = minRemainingUnits;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public KeySelectionStrategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(KeySelectionStrategy strategy) {
+            this.strategy = strategy;
+        }
+    }
+
+    public static class Pdf {
+        private String scratchDir;
+        private int scratchMemoryMb = 16;
+        private boolean passthroughImages = true;
+        private int encodeThreads = 0;
+
+        public String getScratchDir() {
+            return scratchDir;
+        }
+
+        public void setScratchDir(String scratchDir) {
+            this.scratchDir = scratchDir;
+        }
+
+        public int getScratchMemoryMb() {
+            return scratchMemoryMb;
+        }
+
+        public void setScratchMemoryMb(int scratchMemoryMb) {
+            this.scratchMemoryMb = scratchMemoryMb;
+        }
+
+        public boolean isPassthroughImages() {
+            return passthroughImages;
+        }
+
+        public void setPassthroughImages(boolean passthroughImages) {
+            this.passthroughImages = passthroughImages;
+        }
+
+        public int getEncodeThreads() {
+            return encodeThreads;
+        }
+
+        public void setEncodeThreads(int encodeThreads) {
+            this.encodeThreads = encodeThreads;
+        }
+    }
+
     public static class State {
         @NotBlank
         private String dbPath;
@@ -0,0 +1,464 @@
+package com.kmg.ocr.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+@Component
+public class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+    private static final String EPOCH_MILLIS = "CAST(ROUND((julianday(%s) - 2440587.5) * 86400000.0) AS INTEGER)";
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "history and audit indexes", List.of(
+                    "CREATE INDEX IF NOT EXISTS idx_jobs_created_at ON jobs(created_at)",
+                    "CREATE INDEX IF NOT EXISTS idx_jobs_status_created_at ON jobs(status, created_at)",
+                    "CREATE INDEX IF NOT EXISTS idx_job_items_job_id ON job_items(job_id, queue_index)",
+                    "CREATE INDEX IF NOT EXISTS idx_usage_audit_credential_period ON usage_audit(credential_id, period_pt)"
+            )),
+            new Migration(2, "epoch-millis timestamps for jobs, job_items and usage_audit", List.of(
+                    """
+                    CREATE TABLE jobs_v2 (
+                      id TEXT PRIMARY KEY,
+                      strategy TEXT NOT NULL,
+                      parallelism INTEGER NOT NULL DEFAULT 2,
+                      status TEXT NOT NULL,
+                      created_at INTEGER NOT NULL,
+                      started_at INTEGER,
+                      ended_at INTEGER,
+                      stop_reason TEXT,
+                      total_items INTEGER NOT NULL,
+                      processed_items INTEGER NOT NULL DEFAULT 0,
+                      current_credential_id TEXT,
+                      last_error TEXT
+                    )
+                    """,
+                    """
+                    INSERT INTO jobs_v2(id, strategy, parallelism, status, created_at, started_at, ended_at, stop_reason,
+                                        total_items, processed_items, current_credential_id, last_error)
+                    SELECT id, strategy, parallelism, status, %s, %s, %s, stop_reason,
+                           total_items, processed_items, current_credential_id, last_error
+                      FROM jobs
+                    """.formatted(millis("created_at"), millis("started_at"), millis("ended_at")),
+                    "DROP TABLE jobs",
+                    "ALTER TABLE jobs_v2 RENAME TO jobs",
+                    """
+                    CREATE TABLE job_items_v2 (
+                      id TEXT PRIMARY KEY,
+                      job_id TEXT NOT NULL,
+                      queue_index INTEGER NOT NULL,
+                      folder_path TEXT NOT NULL,
+                      image_total INTEGER NOT NULL,
+                      image_done INTEGER NOT NULL DEFAULT 0,
+                      status TEXT NOT NULL,
+                      pdf_path TEXT,
+                      error_reason TEXT,
+                      created_at INTEGER NOT NULL,
+                      started_at INTEGER,
+                      ended_at INTEGER,
+                      FOREIGN KEY (job_id) REFERENCES jobs(id)
+                    )
+                    """,
+                    """
+                    INSERT INTO job_items_v2(id, job_id, queue_index, folder_path, image_total, image_done, status,
+                                             pdf_path, error_reason, created_at, started_at, ended_at)
+                    SELECT id, job_id, queue_index, folder_path, image_total, image_done, status,
+                           pdf_path, error_reason, %s, %s, %s
+                      FROM job_items
+                    """.formatted(millis("created_at"), millis("started_at"), millis("ended_at")),
+                    "DROP TABLE job_items",
+                    "ALTER TABLE job_items_v2 RENAME TO job_items",
+                    """
+                    CREATE TABLE usage_audit_v2 (
+                      id INTEGER PRIMARY KEY AUTOINCREMENT,
+                      credential_id TEXT NOT NULL,
+                      period_pt TEXT NOT NULL,
+                      old_used_units INTEGER NOT NULL,
+                      new_used_units INTEGER NOT NULL,
+                      reason TEXT NOT NULL,
+                      created_at INTEGER NOT NULL,
+                      FOREIGN KEY (credential_id) REFERENCES credentials(id)
+                    )
+                    """,
+                    """
+                    INSERT INTO usage_audit_v2(id, credential_id, period_pt, old_used_units, new_used_units, reason, created_at)
+                    SELECT id, credential_id, period_pt, old_used_units, new_used_units, reason, %s
+                      FROM usage_audit
+                    """.formatted(millis("created_at")),
+                    "DROP TABLE usage_audit",
+                    "ALTER TABLE usage_audit_v2 RENAME TO usage_audit",
+                    "CREATE INDEX IF NOT EXISTS idx_jobs_created_at ON jobs(created_at)",
+                    "CREATE INDEX IF NOT EXISTS idx_jobs_status_created_at ON jobs(status, created_at)",
+                    "CREATE INDEX IF NOT EXISTS idx_job_items_job_id ON job_items(job_id, queue_index)",
+                    "CREATE INDEX IF NOT EXISTS idx_usage_audit_credential_period ON usage_audit(credential_id, period_pt)"
+            )),
+            new Migration(3, "folder manifests and incremental jobs", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS folder_manifest_pages (
+                      folder_path TEXT NOT NULL,
+                      relative_path TEXT NOT NULL,
+                      size_bytes INTEGER NOT NULL,
+                      modified_at INTEGER NOT NULL,
+                      content_hash TEXT NOT NULL,
+                      settings_fingerprint TEXT NOT NULL,
+                      full_text TEXT,
+                      words_json TEXT NOT NULL,
+                      updated_at INTEGER NOT NULL,
+                      PRIMARY KEY (folder_path, relative_path)
+                    )
+                    """,
+                    "ALTER TABLE jobs ADD COLUMN incremental INTEGER NOT NULL DEFAULT 0"
+            )),
+            new Migration(4, "hot folder ingestion log", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS hot_folder_files (
+                      folder_path TEXT NOT NULL,
+                      relative_path TEXT NOT NULL,
+                      size_bytes INTEGER NOT NULL,
+                      modified_at INTEGER NOT NULL,
+                      pdf_path TEXT NOT NULL,
+                      published_at INTEGER NOT NULL,
+                      PRIMARY KEY (folder_path, relative_path)
+                    )
+                    """
+            )),
+            new Migration(5, "epoch-millis created_at for ocr_result_cache", List.of(
+                    """
+                    CREATE TABLE ocr_result_cache_v5 (
+                      cache_key TEXT PRIMARY KEY,
+                      full_text TEXT,
+                      words_json TEXT NOT NULL,
+                      size_bytes INTEGER NOT NULL,
+                      created_at INTEGER NOT NULL,
+                      last_used_at INTEGER NOT NULL
+                    )
+                    """,
+                    """
+                    INSERT INTO ocr_result_cache_v5(cache_key, full_text, words_json, size_bytes, created_at, last_used_at)
+                    SELECT cache_key, full_text, words_json, size_bytes, %s, last_used_at
+                      FROM ocr_result_cache
+                    """.formatted(millis("created_at")),
+                    "DROP TABLE ocr_result_cache",
+                    "ALTER TABLE ocr_result_cache_v5 RENAME TO ocr_result_cache",
+                    "CREATE INDEX IF NOT EXISTS idx_ocr_result_cache_last_used ON ocr_result_cache(last_used_at)"
+            )),
+            new Migration(6, "hot_folder_buffer", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS hot_folder_buffer (
+                      folder_path TEXT NOT NULL,
+                      relative_path TEXT NOT NULL,
+                      size_bytes INTEGER NOT NULL,
+                      modified_at INTEGER NOT NULL,
+                      full_text TEXT,
+                      words_json TEXT NOT NULL,
+                      buffered_at INTEGER NOT NULL,
+                      PRIMARY KEY (folder_path, relative_path)
+                    )
+                    """
+            ))
+    );
+
+    private static final List<String> LEGACY_BASELINE = List.of(
+            """
+            CREATE TABLE IF NOT EXISTS quota_reservations (
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              reserved_units INTEGER NOT NULL,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (credential_id, period_pt),
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS ocr_page_checkpoints (
+              job_item_id TEXT NOT NULL,
+              page_index INTEGER NOT NULL,
+              image_path TEXT NOT NULL,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (job_item_id, page_index),
+              FOREIGN KEY (job_item_id) REFERENCES job_items(id)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS ocr_result_cache (
+              cache_key TEXT PRIMARY KEY,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              size_bytes INTEGER NOT NULL,
+              created_at TEXT NOT NULL,
+              last_used_at INTEGER NOT NULL
+            )
+            """
+    );
+
+    private static final List<String> CURRENT_SCHEMA = List.of(
+            """
+            CREATE TABLE credentials (
+              id TEXT PRIMARY KEY,
+              fingerprint TEXT UNIQUE NOT NULL,
+              file_path TEXT NOT NULL,
+              file_name TEXT NOT NULL,
+              account_label TEXT,
+              project_id TEXT,
+              service_account_email TEXT,
+              private_key_id TEXT,
+              is_active INTEGER NOT NULL DEFAULT 1,
+              created_at TEXT NOT NULL,
+              updated_at TEXT NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE usage_monthly (
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              cap_units INTEGER NOT NULL,
+              used_units INTEGER NOT NULL,
+              adjusted_units INTEGER NOT NULL DEFAULT 0,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (credential_id, period_pt),
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE usage_audit (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              old_used_units INTEGER NOT NULL,
+              new_used_units INTEGER NOT NULL,
+              reason TEXT NOT NULL,
+              created_at INTEGER NOT NULL,
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE quota_reservations (
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              reserved_units INTEGER NOT NULL,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (credential_id, period_pt),
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE jobs (
+              id TEXT PRIMARY KEY,
+              strategy TEXT NOT NULL,
+              parallelism INTEGER NOT NULL DEFAULT 2,
+              status TEXT NOT NULL,
+              created_at INTEGER NOT NULL,
+              started_at INTEGER,
+              ended_at INTEGER,
+              stop_reason TEXT,
+              total_items INTEGER NOT NULL,
+              processed_items INTEGER NOT NULL DEFAULT 0,
+              current_credential_id TEXT,
+              last_error TEXT,
+              incremental INTEGER NOT NULL DEFAULT 0
+            )
+            """,
+            """
+            CREATE TABLE job_items (
+              id TEXT PRIMARY KEY,
+              job_id TEXT NOT NULL,
+              queue_index INTEGER NOT NULL,
+              folder_path TEXT NOT NULL,
+              image_total INTEGER NOT NULL,
+              image_done INTEGER NOT NULL DEFAULT 0,
+              status TEXT NOT NULL,
+              pdf_path TEXT,
+              error_reason TEXT,
+              created_at INTEGER NOT NULL,
+              started_at INTEGER,
+              ended_at INTEGER,
+              FOREIGN KEY (job_id) REFERENCES jobs(id)
+            )
+            """,
+            """
+            CREATE TABLE ocr_page_checkpoints (
+              job_item_id TEXT NOT NULL,
+              page_index INTEGER NOT NULL,
+              image_path TEXT NOT NULL,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (job_item_id, page_index),
+              FOREIGN KEY (job_item_id) REFERENCES job_items(id)
+            )
+            """,
+            """
+            CREATE TABLE ocr_result_cache (
+              cache_key TEXT PRIMARY KEY,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              size_bytes INTEGER NOT NULL,
+              created_at INTEGER NOT NULL,
+              last_used_at INTEGER NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE folder_manifest_pages (
+              folder_path TEXT NOT NULL,
+              relative_path TEXT NOT NULL,
+              size_bytes INTEGER NOT NULL,
+              modified_at INTEGER NOT NULL,
+              content_hash TEXT NOT NULL,
+              settings_fingerprint TEXT NOT NULL,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              updated_at INTEGER NOT NULL,
+              PRIMARY KEY (folder_path, relative_path)
+            )
+            """,
+            """
+            CREATE TABLE hot_folder_files (
+              folder_path TEXT NOT NULL,
+              relative_path TEXT NOT NULL,
+              size_bytes INTEGER NOT NULL,
+              modified_at INTEGER NOT NULL,
+              pdf_path TEXT NOT NULL,
+              published_at INTEGER NOT NULL,
+              PRIMARY KEY (folder_path, relative_path)
+            )
+            """,
+            """
+            CREATE TABLE hot_folder_buffer (
+              folder_path TEXT NOT NULL,
+              relative_path TEXT NOT NULL,
+              size_bytes INTEGER NOT NULL,
+              modified_at INTEGER NOT NULL,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              buffered_at INTEGER NOT NULL,
+              PRIMARY KEY (folder_path, relative_path)
+            )
+            """,
+            "CREATE INDEX idx_jobs_created_at ON jobs(created_at)",
+            "CREATE INDEX idx_jobs_status_created_at ON jobs(status, created_at)",
+            "CREATE INDEX idx_job_items_job_id ON job_items(job_id, queue_index)",
+            "CREATE INDEX idx_usage_audit_credential_period ON usage_audit(credential_id, period_pt)",
+            "CREATE INDEX idx_ocr_result_cache_last_used ON ocr_result_cache(last_used_at)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaMigrator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int migrate() {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int version = userVersion(connection);
+            if (version == 0 && !tableExists(connection, "jobs")) {
+                return createCurrentSchema(connection);
+            }
+            if (version == 0) {
+                upgradeLegacyBaseline(connection);
+            }
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() > version) {
+                    apply(connection, migration);
+                    version = migration.version();
+                }
+            }
+            return version;
+        });
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        log.info("Applying schema migration {}: {}", migration.version(), migration.description());
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA foreign_keys=OFF");
+            connection.setAutoCommit(false);
+            try {
+                for (String sql : migration.statements()) {
+                    statement.execute(sql);
+                }
+                int violations = 0;
+                try (ResultSet rs = statement.executeQuery("PRAGMA foreign_key_check")) {
+                    while (rs.next()) {
+                        violations++;
+                    }
+                }
+                if (violations > 0) {
+                    log.warn("Schema migration {} kept {} rows with dangling foreign keys", migration.version(), violations);
+                }
+                statement.execute("PRAGMA user_version = " + migration.version());
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw new IllegalStateException("Schema migration " + migration.version() + " failed: " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                statement.execute("PRAGMA foreign_keys=ON");
+            }
+        }
+    }
+
+    private int createCurrentSchema(Connection connection) throws SQLException {
+        int latest = MIGRATIONS.getLast().version();
+        log.info("Creating schema version {}", latest);
+        apply(connection, new Migration(latest, "current schema", CURRENT_SCHEMA));
+        return latest;
+    }
+
+    private void upgradeLegacyBaseline(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!columnExists(connection, "jobs", "parallelism")) {
+                statement.execute("ALTER TABLE jobs ADD COLUMN parallelism INTEGER NOT NULL DEFAULT 2");
+            }
+            for (String sql : LEGACY_BASELINE) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static int userVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static String millis(String column) {
+        return EPOCH_MILLIS.formatted(column);
+    }
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+}
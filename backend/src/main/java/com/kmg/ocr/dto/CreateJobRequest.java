@@ -11,6 +11,7 @@ import java.util.List;
 public record CreateJobRequest(
         @NotEmpty List<String> folders,
         @NotNull KeySelectionStrategy strategy,
-        @Min(1) @Max(8) int parallelism
+        @Min(1) @Max(8) int parallelism,
+        boolean incremental
 ) {
 }
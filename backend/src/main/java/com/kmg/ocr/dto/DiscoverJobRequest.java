@@ -0,0 +1,15 @@
+package com.kmg.ocr.dto;
+
+import com.kmg.ocr.model.KeySelectionStrategy;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public record DiscoverJobRequest(
+        @NotBlank String root,
+        @NotNull KeySelectionStrategy strategy,
+        @Min(1) @Max(8) int parallelism,
+        boolean incremental
+) {
+}
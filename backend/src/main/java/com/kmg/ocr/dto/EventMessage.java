@@ -1,4 +1,4 @@
 package com.kmg.ocr.dto;
 
-public record EventMessage(String type, String jobId, String message, String timestamp, Object payload) {
+public record EventMessage(long id, String type, String jobId, String message, String timestamp, Object payload) {
 }
@@ -0,0 +1,14 @@
+package com.kmg.ocr.dto;
+
+public record HotFolderView(
+        String folder,
+        int waitingFiles,
+        int queuedFiles,
+        int failedFiles,
+        int bufferedPages,
+        int publishedPdfs,
+        long publishedPages,
+        String lastPdfPath,
+        String pausedReason
+) {
+}
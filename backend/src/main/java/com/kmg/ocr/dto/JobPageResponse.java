@@ -0,0 +1,11 @@
+package com.kmg.ocr.dto;
+
+import java.util.List;
+
+public record JobPageResponse(
+        List<JobSummaryView> jobs,
+        int page,
+        int size,
+        long total
+) {
+}
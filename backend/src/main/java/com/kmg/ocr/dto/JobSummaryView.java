@@ -0,0 +1,28 @@
+package com.kmg.ocr.dto;
+
+import com.kmg.ocr.model.JobStatus;
+import com.kmg.ocr.model.KeySelectionStrategy;
+
+import java.util.List;
+
+public record JobSummaryView(
+        String id,
+        KeySelectionStrategy strategy,
+        int parallelism,
+        JobStatus status,
+        String createdAt,
+        String startedAt,
+        String endedAt,
+        String stopReason,
+        int totalItems,
+        int processedItems,
+        int completedItems,
+        int failedItems,
+        int imageTotal,
+        int imageDone,
+        String currentCredentialId,
+        String lastError,
+        boolean incremental,
+        List<JobItemView> runningItems
+) {
+}
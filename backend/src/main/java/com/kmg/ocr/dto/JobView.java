@@ -18,6 +18,7 @@ public record JobView(
         int processedItems,
         String currentCredentialId,
         String lastError,
+        boolean incremental,
         List<JobItemView> items
 ) {
 }
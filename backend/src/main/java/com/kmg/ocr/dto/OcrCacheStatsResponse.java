@@ -0,0 +1,12 @@
+package com.kmg.ocr.dto;
+
+public record OcrCacheStatsResponse(
+        boolean enabled,
+        long entries,
+        long totalBytes,
+        long maxBytes,
+        long hits,
+        long misses,
+        double hitRate
+) {
+}
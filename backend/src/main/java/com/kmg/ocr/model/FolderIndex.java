@@ -0,0 +1,10 @@
+package com.kmg.ocr.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record FolderIndex(Path folder, List<IndexedImage> images, long scannedAtMillis) {
+    public List<Path> paths() {
+        return images.stream().map(IndexedImage::path).toList();
+    }
+}
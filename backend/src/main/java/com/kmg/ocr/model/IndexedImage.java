@@ -0,0 +1,6 @@
+package com.kmg.ocr.model;
+
+import java.nio.file.Path;
+
+public record IndexedImage(Path path, String sortKey, long sizeBytes, long lastModifiedMillis) {
+}
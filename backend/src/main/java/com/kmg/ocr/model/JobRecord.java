@@ -14,6 +14,7 @@ public record JobRecord(
         int totalItems,
         int processedItems,
         String currentCredentialId,
-        String lastError
+        String lastError,
+        boolean incremental
 ) {
 }
@@ -2,6 +2,7 @@ package com.kmg.ocr.model;
 
 public enum JobStatus {
     CREATED,
+    QUEUED,
     RUNNING,
     COMPLETED,
     FAILED,
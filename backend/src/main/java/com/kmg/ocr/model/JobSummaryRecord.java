@@ -0,0 +1,10 @@
+package com.kmg.ocr.model;
+
+public record JobSummaryRecord(
+        JobRecord job,
+        int completedItems,
+        int failedItems,
+        int imageTotal,
+        int imageDone
+) {
+}
@@ -13,9 +13,11 @@ import java.util.Optional;
 @Repository
 public class CredentialRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
 
-    public CredentialRepository(JdbcTemplate jdbcTemplate) {
+    public CredentialRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
     }
 
     private static final RowMapper<CredentialRecord> MAPPER = new RowMapper<>() {
@@ -38,11 +40,11 @@ public class CredentialRepository {
     };
 
     public List<CredentialRecord> findAll() {
-        return jdbcTemplate.query("SELECT * FROM credentials ORDER BY file_name ASC", MAPPER);
+        return readPool.reader().query("SELECT * FROM credentials ORDER BY file_name ASC", MAPPER);
     }
 
     public Optional<CredentialRecord> findById(String id) {
-        List<CredentialRecord> rows = jdbcTemplate.query(
+        List<CredentialRecord> rows = readPool.reader().query(
                 "SELECT * FROM credentials WHERE id = ?",
                 MAPPER,
                 id
@@ -51,7 +53,7 @@ public class CredentialRepository {
     }
 
     public Optional<CredentialRecord> findByFingerprint(String fingerprint) {
-        List<CredentialRecord> rows = jdbcTemplate.query(
+        List<CredentialRecord> rows = readPool.reader().query(
                 "SELECT * FROM credentials WHERE fingerprint = ?",
                 MAPPER,
                 fingerprint
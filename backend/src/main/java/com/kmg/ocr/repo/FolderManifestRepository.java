@@ -0,0 +1,84 @@
+package com.kmg.ocr.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+public class FolderManifestRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
+
+    public FolderManifestRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
+    }
+
+    private static final RowMapper<ManifestRow> ROW_MAPPER = new RowMapper<>() {
+        @Override
+        public ManifestRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new ManifestRow(
+                    rs.getString("relative_path"),
+                    rs.getLong("size_bytes"),
+                    rs.getLong("modified_at"),
+                    rs.getString("content_hash"),
+                    rs.getString("settings_fingerprint"),
+                    rs.getString("full_text"),
+                    rs.getString("words_json")
+            );
+        }
+    };
+
+    public List<ManifestRow> findByFolder(String folderPath) {
+        return readPool.reader().query(
+                "SELECT * FROM folder_manifest_pages WHERE folder_path = ?",
+                ROW_MAPPER,
+                folderPath
+        );
+    }
+
+    @Transactional
+    public void replaceFolder(String folderPath, List<ManifestRow> rows) {
+        jdbcTemplate.update("DELETE FROM folder_manifest_pages WHERE folder_path = ?", folderPath);
+        if (rows.isEmpty()) {
+            return;
+        }
+        long now = SqlTime.nowMillis();
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO folder_manifest_pages(folder_path, relative_path, size_bytes, modified_at, content_hash,
+                                                  settings_fingerprint, full_text, words_json, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, folderPath);
+                    ps.setString(2, row.relativePath());
+                    ps.setLong(3, row.sizeBytes());
+                    ps.setLong(4, row.modifiedAt());
+                    ps.setString(5, row.contentHash());
+                    ps.setString(6, row.settingsFingerprint());
+                    ps.setString(7, row.fullText());
+                    ps.setString(8, row.wordsJson());
+                    ps.setLong(9, now);
+                }
+        );
+    }
+
+    public record ManifestRow(
+            String relativePath,
+            long sizeBytes,
+            long modifiedAt,
+            String contentHash,
+            String settingsFingerprint,
+            String fullText,
+            String wordsJson
+    ) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.kmg.ocr.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+public class HotFolderRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
+
+    public HotFolderRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
+    }
+
+    private static final RowMapper<IngestedFile> ROW_MAPPER = new RowMapper<>() {
+        @Override
+        public IngestedFile mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new IngestedFile(
+                    rs.getString("relative_path"),
+                    rs.getLong("size_bytes"),
+                    rs.getLong("modified_at")
+            );
+        }
+    };
+
+    private static final RowMapper<BufferedPage> BUFFER_ROW_MAPPER = new RowMapper<>() {
+        @Override
+        public BufferedPage mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new BufferedPage(
+                    new IngestedFile(
+                            rs.getString("relative_path"),
+                            rs.getLong("size_bytes"),
+                            rs.getLong("modified_at")
+                    ),
+                    rs.getString("full_text"),
+                    rs.getString("words_json"),
+                    rs.getLong("buffered_at")
+            );
+        }
+    };
+
+    public List<IngestedFile> findByFolder(String folderPath) {
+        return readPool.reader().query(
+                "SELECT relative_path, size_bytes, modified_at FROM hot_folder_files WHERE folder_path = ?",
+                ROW_MAPPER,
+                folderPath
+        );
+    }
+
+    public List<BufferedPage> findBuffered(String folderPath) {
+        return readPool.reader().query(
+                """
+                SELECT relative_path, size_bytes, modified_at, full_text, words_json, buffered_at
+                  FROM hot_folder_buffer
+                 WHERE folder_path = ?
+                 ORDER BY buffered_at ASC, rowid ASC
+                """,
+                BUFFER_ROW_MAPPER,
+                folderPath
+        );
+    }
+
+    public void saveBuffered(String folderPath, IngestedFile file, String fullText, String wordsJson) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO hot_folder_buffer(folder_path, relative_path, size_bytes, modified_at, full_text, words_json, buffered_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT(folder_path, relative_path) DO UPDATE SET
+                  size_bytes = excluded.size_bytes,
+                  modified_at = excluded.modified_at,
+                  full_text = excluded.full_text,
+                  words_json = excluded.words_json,
+                  buffered_at = excluded.buffered_at
+                """,
+                folderPath,
+                file.relativePath(),
+                file.sizeBytes(),
+                file.modifiedAt(),
+                fullText,
+                wordsJson,
+                SqlTime.nowMillis()
+        );
+    }
+
+    public void deleteBuffered(String folderPath) {
+        jdbcTemplate.update("DELETE FROM hot_folder_buffer WHERE folder_path = ?", folderPath);
+    }
+
+    public void deleteBuffered(String folderPath, String relativePath) {
+        jdbcTemplate.update("DELETE FROM hot_folder_buffer WHERE folder_path = ? AND relative_path = ?", folderPath, relativePath);
+    }
+
+    @Transactional
+    public void markPublished(String folderPath, List<IngestedFile> files, String pdfPath) {
+        deleteBuffered(folderPath);
+        if (files.isEmpty()) {
+            return;
+        }
+        long now = SqlTime.nowMillis();
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO hot_folder_files(folder_path, relative_path, size_bytes, modified_at, pdf_path, published_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT(folder_path, relative_path) DO UPDATE SET
+                  size_bytes = excluded.size_bytes,
+                  modified_at = excluded.modified_at,
+                  pdf_path = excluded.pdf_path,
+                  published_at = excluded.published_at
+                """,
+                files,
+                files.size(),
+                (ps, file) -> {
+                    ps.setString(1, folderPath);
+                    ps.setString(2, file.relativePath());
+                    ps.setLong(3, file.sizeBytes());
+                    ps.setLong(4, file.modifiedAt());
+                    ps.setString(5, pdfPath);
+                    ps.setLong(6, now);
+                }
+        );
+    }
+
+    public record IngestedFile(String relativePath, long sizeBytes, long modifiedAt) {
+    }
+
+    public record BufferedPage(IngestedFile file, String fullText, String wordsJson, long bufferedAt) {
+    }
+}
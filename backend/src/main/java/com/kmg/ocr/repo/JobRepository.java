@@ -4,18 +4,25 @@ import com.kmg.ocr.model.*;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class JobRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
 
-    public JobRepository(JdbcTemplate jdbcTemplate) {
+    public JobRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
     }
 
     private static final RowMapper<JobRecord> JOB_MAPPER = new RowMapper<>() {
@@ -26,14 +33,15 @@ public class JobRepository {
                     KeySelectionStrategy.valueOf(rs.getString("strategy")),
                     rs.getInt("parallelism"),
                     JobStatus.valueOf(rs.getString("status")),
-                    SqlTime.parse(rs.getString("created_at")),
-                    SqlTime.parse(rs.getString("started_at")),
-                    SqlTime.parse(rs.getString("ended_at")),
+                    SqlTime.fromMillis(rs, "created_at"),
+                    SqlTime.fromMillis(rs, "started_at"),
+                    SqlTime.fromMillis(rs, "ended_at"),
                     rs.getString("stop_reason"),
                     rs.getInt("total_items"),
                     rs.getInt("processed_items"),
                     rs.getString("current_credential_id"),
-                    rs.getString("last_error")
+                    rs.getString("last_error"),
+                    rs.getInt("incremental") == 1
             );
         }
     };
@@ -51,9 +59,9 @@ public class JobRepository {
                     JobItemStatus.valueOf(rs.getString("status")),
                     rs.getString("pdf_path"),
                     rs.getString("error_reason"),
-                    SqlTime.parse(rs.getString("created_at")),
-                    SqlTime.parse(rs.getString("started_at")),
-                    SqlTime.parse(rs.getString("ended_at"))
+                    SqlTime.fromMillis(rs, "created_at"),
+                    SqlTime.fromMillis(rs, "started_at"),
+                    SqlTime.fromMillis(rs, "ended_at")
             );
         }
     };
@@ -62,43 +70,75 @@ public class JobRepository {
         jdbcTemplate.update(
                 """
                 INSERT INTO jobs(id, strategy, status, created_at, started_at, ended_at, stop_reason,
-                                 total_items, processed_items, current_credential_id, last_error, parallelism)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                                 total_items, processed_items, current_credential_id, last_error, parallelism,
+                                 incremental)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """,
                 record.id(),
                 record.strategy().name(),
                 record.status().name(),
-                record.createdAt().toString(),
-                toText(record.startedAt()),
-                toText(record.endedAt()),
+                SqlTime.toMillis(record.createdAt()),
+                SqlTime.toMillis(record.startedAt()),
+                SqlTime.toMillis(record.endedAt()),
                 record.stopReason(),
                 record.totalItems(),
                 record.processedItems(),
                 record.currentCredentialId(),
                 record.lastError(),
-                record.parallelism()
+                record.parallelism(),
+                record.incremental() ? 1 : 0
         );
     }
 
-    public void insertItem(JobItemRecord item) {
-        jdbcTemplate.update(
+    @Transactional
+    public void insertJobWithItems(JobRecord record, List<JobItemRecord> items) {
+        insertJob(record);
+        insertItems(items);
+    }
+
+    public void insertItems(List<JobItemRecord> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
                 """
                 INSERT INTO job_items(id, job_id, queue_index, folder_path, image_total, image_done, status,
                                       pdf_path, error_reason, created_at, started_at, ended_at)
                 VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """,
-                item.id(),
-                item.jobId(),
-                item.queueIndex(),
-                item.folderPath(),
-                item.imageTotal(),
-                item.imageDone(),
-                item.status().name(),
-                item.pdfPath(),
-                item.errorReason(),
-                item.createdAt().toString(),
-                toText(item.startedAt()),
-                toText(item.endedAt())
+                items,
+                items.size(),
+                (ps, item) -> {
+                    ps.setString(1, item.id());
+                    ps.setString(2, item.jobId());
+                    ps.setInt(3, item.queueIndex());
+                    ps.setString(4, item.folderPath());
+                    ps.setInt(5, item.imageTotal());
+                    ps.setInt(6, item.imageDone());
+                    ps.setString(7, item.status().name());
+                    ps.setString(8, item.pdfPath());
+                    ps.setString(9, item.errorReason());
+                    ps.setObject(10, SqlTime.toMillis(item.createdAt()));
+                    ps.setObject(11, SqlTime.toMillis(item.startedAt()));
+                    ps.setObject(12, SqlTime.toMillis(item.endedAt()));
+                }
+        );
+    }
+
+    public void markJobQueued(String jobId, Integer processedItems) {
+        jdbcTemplate.update(
+                """
+                UPDATE jobs
+                   SET status = 'QUEUED',
+                       stop_reason = NULL,
+                       last_error = NULL,
+                       current_credential_id = NULL,
+                       processed_items = COALESCE(?, processed_items),
+                       ended_at = NULL
+                 WHERE id = ?
+                """,
+                processedItems,
+                jobId
         );
     }
 
@@ -116,22 +156,68 @@ public class JobRepository {
                  WHERE id = ?
                 """,
                 processedItems,
-                SqlTime.nowText(),
+                SqlTime.nowMillis(),
                 jobId
         );
     }
 
     public Optional<JobRecord> findJobById(String id) {
-        List<JobRecord> rows = jdbcTemplate.query("SELECT * FROM jobs WHERE id = ?", JOB_MAPPER, id);
+        List<JobRecord> rows = readPool.reader().query("SELECT * FROM jobs WHERE id = ?", JOB_MAPPER, id);
         return rows.stream().findFirst();
     }
 
-    public List<JobRecord> findJobs() {
-        return jdbcTemplate.query("SELECT * FROM jobs ORDER BY created_at DESC", JOB_MAPPER);
+    public List<JobSummaryRecord> findJobSummaries(Collection<JobStatus> statuses, int limit, int offset) {
+        List<Object> args = new ArrayList<>(statusArgs(statuses));
+        args.add(limit);
+        args.add(offset);
+        return readPool.reader().query(
+                """
+                SELECT j.*,
+                       COALESCE(SUM(CASE WHEN i.status = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completed_items,
+                       COALESCE(SUM(CASE WHEN i.status = 'FAILED' THEN 1 ELSE 0 END), 0) AS failed_items,
+                       COALESCE(SUM(i.image_total), 0) AS image_total_sum,
+                       COALESCE(SUM(i.image_done), 0) AS image_done_sum
+                  FROM (SELECT * FROM jobs %s ORDER BY created_at DESC LIMIT ? OFFSET ?) j
+                  LEFT JOIN job_items i ON i.job_id = j.id
+                 GROUP BY j.id
+                 ORDER BY j.created_at DESC
+                """.formatted(statusFilter(statuses)),
+                (rs, rowNum) -> new JobSummaryRecord(
+                        JOB_MAPPER.mapRow(rs, rowNum),
+                        rs.getInt("completed_items"),
+                        rs.getInt("failed_items"),
+                        rs.getInt("image_total_sum"),
+                        rs.getInt("image_done_sum")
+                ),
+                args.toArray()
+        );
+    }
+
+    public long countJobs(Collection<JobStatus> statuses) {
+        Long count = readPool.reader().queryForObject(
+                "SELECT COUNT(*) FROM jobs " + statusFilter(statuses),
+                Long.class,
+                statusArgs(statuses).toArray()
+        );
+        return count == null ? 0 : count;
+    }
+
+    public List<JobItemRecord> findItemsByJobIds(Collection<String> jobIds, JobItemStatus status) {
+        if (jobIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>(jobIds);
+        args.add(status.name());
+        return readPool.reader().query(
+                "SELECT * FROM job_items WHERE job_id IN (" + placeholders(jobIds.size()) + ") AND status = ?"
+                        + " ORDER BY job_id, queue_index ASC",
+                ITEM_MAPPER,
+                args.toArray()
+        );
     }
 
     public List<JobItemRecord> findItemsByJobId(String jobId) {
-        return jdbcTemplate.query(
+        return readPool.reader().query(
                 "SELECT * FROM job_items WHERE job_id = ? ORDER BY queue_index ASC",
                 ITEM_MAPPER,
                 jobId
@@ -148,8 +234,8 @@ public class JobRepository {
             boolean setStarted,
             boolean setEnded
     ) {
-        String startedAt = setStarted ? SqlTime.nowText() : null;
-        String endedAt = setEnded ? SqlTime.nowText() : null;
+        Long startedAt = setStarted ? SqlTime.nowMillis() : null;
+        Long endedAt = setEnded ? SqlTime.nowMillis() : null;
         jdbcTemplate.update(
                 """
                 UPDATE jobs
@@ -182,8 +268,8 @@ public class JobRepository {
             boolean setStarted,
             boolean setEnded
     ) {
-        String startedAt = setStarted ? SqlTime.nowText() : null;
-        String endedAt = setEnded ? SqlTime.nowText() : null;
+        Long startedAt = setStarted ? SqlTime.nowMillis() : null;
+        Long endedAt = setEnded ? SqlTime.nowMillis() : null;
         jdbcTemplate.update(
                 """
                 UPDATE job_items
@@ -205,16 +291,28 @@ public class JobRepository {
         );
     }
 
-    public Optional<JobRecord> findRunningJob() {
-        List<JobRecord> rows = jdbcTemplate.query(
-                "SELECT * FROM jobs WHERE status = 'RUNNING' ORDER BY created_at DESC LIMIT 1",
-                JOB_MAPPER
+    public void updateItemProgress(Map<String, Integer> imageDoneByItem) {
+        if (imageDoneByItem.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Integer>> entries = List.copyOf(imageDoneByItem.entrySet());
+        jdbcTemplate.batchUpdate(
+                """
+                UPDATE job_items
+                   SET image_done = ?
+                 WHERE id = ? AND status = 'RUNNING'
+                """,
+                entries,
+                entries.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                }
         );
-        return rows.stream().findFirst();
     }
 
     public void recoverRunningJobsAfterRestart() {
-        String now = SqlTime.nowText();
+        long now = SqlTime.nowMillis();
         jdbcTemplate.update(
                 """
                 UPDATE jobs
@@ -227,6 +325,17 @@ public class JobRepository {
                 now
         );
 
+        jdbcTemplate.update(
+                """
+                UPDATE jobs
+                   SET status = 'STOPPED',
+                       ended_at = COALESCE(ended_at, ?),
+                       stop_reason = COALESCE(stop_reason, 'Application restarted while job was queued')
+                 WHERE status = 'QUEUED'
+                """,
+                now
+        );
+
         jdbcTemplate.update(
                 """
                 UPDATE job_items
@@ -242,7 +351,15 @@ public class JobRepository {
         );
     }
 
-    private String toText(Object value) {
-        return value == null ? null : value.toString();
+    private static String statusFilter(Collection<JobStatus> statuses) {
+        return statuses.isEmpty() ? "" : "WHERE status IN (" + placeholders(statuses.size()) + ")";
+    }
+
+    private static List<Object> statusArgs(Collection<JobStatus> statuses) {
+        return statuses.stream().<Object>map(JobStatus::name).toList();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 }
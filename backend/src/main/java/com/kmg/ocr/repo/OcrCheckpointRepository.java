@@ -11,9 +11,11 @@ import java.util.List;
 @Repository
 public class OcrCheckpointRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
 
-    public OcrCheckpointRepository(JdbcTemplate jdbcTemplate) {
+    public OcrCheckpointRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
     }
 
     private static final RowMapper<CheckpointRow> ROW_MAPPER = new RowMapper<>() {
@@ -61,8 +63,36 @@ public class OcrCheckpointRepository {
         }
     }
 
+    public void upsertBatch(List<CheckpointRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String now = SqlTime.nowText();
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO ocr_page_checkpoints(job_item_id, page_index, image_path, full_text, words_json, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT(job_item_id, page_index) DO UPDATE
+                   SET image_path = excluded.image_path,
+                       full_text = excluded.full_text,
+                       words_json = excluded.words_json,
+                       updated_at = excluded.updated_at
+                """,
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.jobItemId());
+                    ps.setInt(2, row.pageIndex());
+                    ps.setString(3, row.imagePath());
+                    ps.setString(4, row.fullText());
+                    ps.setString(5, row.wordsJson());
+                    ps.setString(6, now);
+                }
+        );
+    }
+
     public List<CheckpointRow> findByItemId(String jobItemId) {
-        return jdbcTemplate.query(
+        return readPool.reader().query(
                 "SELECT * FROM ocr_page_checkpoints WHERE job_item_id = ? ORDER BY page_index ASC",
                 ROW_MAPPER,
                 jobItemId
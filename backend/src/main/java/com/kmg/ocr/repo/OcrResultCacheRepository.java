@@ -0,0 +1,123 @@
+package com.kmg.ocr.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class OcrResultCacheRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
+
+    public OcrResultCacheRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
+    }
+
+    private static final RowMapper<CacheRow> ROW_MAPPER = new RowMapper<>() {
+        @Override
+        public CacheRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new CacheRow(
+                    rs.getString("cache_key"),
+                    rs.getString("full_text"),
+                    rs.getString("words_json"),
+                    rs.getLong("size_bytes")
+            );
+        }
+    };
+
+    public Optional<CacheRow> findByKey(String cacheKey) {
+        List<CacheRow> rows = readPool.reader().query(
+                "SELECT cache_key, full_text, words_json, size_bytes FROM ocr_result_cache WHERE cache_key = ?",
+                ROW_MAPPER,
+                cacheKey
+        );
+        return rows.stream().findFirst();
+    }
+
+    public void touchAll(Map<String, Long> usedAtMillisByKey) {
+        if (usedAtMillisByKey.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Long>> entries = List.copyOf(usedAtMillisByKey.entrySet());
+        jdbcTemplate.batchUpdate(
+                "UPDATE ocr_result_cache SET last_used_at = MAX(last_used_at, ?) WHERE cache_key = ?",
+                entries,
+                entries.size(),
+                (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setString(2, entry.getKey());
+                }
+        );
+    }
+
+    @Transactional
+    public long upsert(String cacheKey, String fullText, String wordsJson, long sizeBytes, long usedAtMillis) {
+        Long previous = jdbcTemplate.query(
+                "SELECT size_bytes FROM ocr_result_cache WHERE cache_key = ?",
+                rs -> rs.next() ? rs.getLong(1) : null,
+                cacheKey
+        );
+        jdbcTemplate.update(
+                """
+                INSERT INTO ocr_result_cache(cache_key, full_text, words_json, size_bytes, created_at, last_used_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT(cache_key) DO UPDATE
+                   SET full_text = excluded.full_text,
+                       words_json = excluded.words_json,
+                       size_bytes = excluded.size_bytes,
+                       last_used_at = excluded.last_used_at
+                """,
+                cacheKey,
+                fullText,
+                wordsJson,
+                sizeBytes,
+                usedAtMillis,
+                usedAtMillis
+        );
+        return previous == null ? 0 : previous;
+    }
+
+    public long totalSizeBytes() {
+        Long total = readPool.reader().queryForObject("SELECT COALESCE(SUM(size_bytes), 0) FROM ocr_result_cache", Long.class);
+        return total == null ? 0 : total;
+    }
+
+    public long countEntries() {
+        Long count = readPool.reader().queryForObject("SELECT COUNT(*) FROM ocr_result_cache", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Transactional
+    public long deleteLeastRecentlyUsed(int limit) {
+        List<Long> sizes = jdbcTemplate.queryForList(
+                "SELECT size_bytes FROM ocr_result_cache ORDER BY last_used_at ASC LIMIT ?",
+                Long.class,
+                limit
+        );
+        jdbcTemplate.update(
+                """
+                DELETE FROM ocr_result_cache
+                 WHERE cache_key IN (
+                       SELECT cache_key FROM ocr_result_cache ORDER BY last_used_at ASC LIMIT ?
+                 )
+                """,
+                limit
+        );
+        return sizes.stream().mapToLong(Long::longValue).sum();
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM ocr_result_cache");
+    }
+
+    public record CacheRow(String cacheKey, String fullText, String wordsJson, long sizeBytes) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.kmg.ocr.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+public class QuotaReservationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public QuotaReservationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static final RowMapper<ReservationRow> ROW_MAPPER = new RowMapper<>() {
+        @Override
+        public ReservationRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new ReservationRow(
+                    rs.getString("credential_id"),
+                    rs.getString("period_pt"),
+                    rs.getInt("reserved_units")
+            );
+        }
+    };
+
+    public List<ReservationRow> findAll() {
+        return jdbcTemplate.query("SELECT credential_id, period_pt, reserved_units FROM quota_reservations", ROW_MAPPER);
+    }
+
+    public void save(String credentialId, String period, int reservedUnits) {
+        if (reservedUnits <= 0) {
+            delete(credentialId, period);
+            return;
+        }
+        jdbcTemplate.update(
+                """
+                INSERT INTO quota_reservations(credential_id, period_pt, reserved_units, updated_at)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT(credential_id, period_pt) DO UPDATE
+                   SET reserved_units = excluded.reserved_units,
+                       updated_at = excluded.updated_at
+                """,
+                credentialId,
+                period,
+                reservedUnits,
+                SqlTime.nowText()
+        );
+    }
+
+    public void delete(String credentialId, String period) {
+        jdbcTemplate.update("DELETE FROM quota_reservations WHERE credential_id = ? AND period_pt = ?", credentialId, period);
+    }
+
+    public record ReservationRow(String credentialId, String period, int reservedUnits) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.kmg.ocr.repo;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
@@ -17,4 +20,20 @@ public final class SqlTime {
         }
         return OffsetDateTime.parse(value);
     }
+
+    public static long nowMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static Long toMillis(OffsetDateTime value) {
+        return value == null ? null : value.toInstant().toEpochMilli();
+    }
+
+    public static OffsetDateTime fromMillis(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            return null;
+        }
+        return Instant.ofEpochMilli(value).atOffset(ZoneOffset.UTC);
+    }
 }
@@ -0,0 +1,67 @@
+package com.kmg.ocr.repo;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class SqliteReadPool {
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate writerJdbcTemplate;
+    private final OcrProperties properties;
+    private volatile HikariDataSource dataSource;
+    private volatile JdbcTemplate readerJdbcTemplate;
+    private volatile boolean closed;
+
+    public SqliteReadPool(DataSourceProperties dataSourceProperties, JdbcTemplate writerJdbcTemplate, OcrProperties properties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.writerJdbcTemplate = writerJdbcTemplate;
+        this.properties = properties;
+    }
+
+    public JdbcTemplate reader() {
+        if (!properties.getReadPool().isEnabled() || closed
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return writerJdbcTemplate;
+        }
+        JdbcTemplate reader = readerJdbcTemplate;
+        if (reader == null) {
+            synchronized (this) {
+                reader = readerJdbcTemplate;
+                if (reader == null) {
+                    dataSource = createDataSource();
+                    reader = new JdbcTemplate(dataSource);
+                    readerJdbcTemplate = reader;
+                }
+            }
+        }
+        return reader;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    private HikariDataSource createDataSource() {
+        OcrProperties.ReadPool settings = properties.getReadPool();
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("sqlite-read");
+        config.setJdbcUrl(dataSourceProperties.determineUrl());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        config.setMaximumPoolSize(Math.max(1, settings.getMaxSize()));
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(Math.max(250, settings.getConnectionTimeoutMs()));
+        config.setConnectionInitSql("PRAGMA query_only=1");
+        config.addDataSourceProperty("busy_timeout", "30000");
+        return new HikariDataSource(config);
+    }
+}
@@ -14,9 +14,11 @@ import java.util.Optional;
 @Repository
 public class UsageRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final SqliteReadPool readPool;
 
-    public UsageRepository(JdbcTemplate jdbcTemplate) {
+    public UsageRepository(JdbcTemplate jdbcTemplate, SqliteReadPool readPool) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readPool = readPool;
     }
 
     private static final RowMapper<UsageRecord> MAPPER = new RowMapper<>() {
@@ -34,7 +36,7 @@ public class UsageRepository {
     };
 
     public List<UsageRecord> findByPeriod(String period) {
-        return jdbcTemplate.query(
+        return readPool.reader().query(
                 "SELECT * FROM usage_monthly WHERE period_pt = ?",
                 MAPPER,
                 period
@@ -42,7 +44,7 @@ public class UsageRepository {
     }
 
     public Optional<UsageRecord> findByCredentialAndPeriod(String credentialId, String period) {
-        List<UsageRecord> rows = jdbcTemplate.query(
+        List<UsageRecord> rows = readPool.reader().query(
                 "SELECT * FROM usage_monthly WHERE credential_id = ? AND period_pt = ?",
                 MAPPER,
                 credentialId,
@@ -71,6 +73,17 @@ public class UsageRepository {
         return findByCredentialAndPeriod(credentialId, period).orElseThrow();
     }
 
+    @Transactional
+    public void decrementUsed(String credentialId, String period, int delta) {
+        jdbcTemplate.update(
+                "UPDATE usage_monthly SET used_units = MAX(0, used_units - ?), updated_at = ? WHERE credential_id = ? AND period_pt = ?",
+                delta,
+                SqlTime.nowText(),
+                credentialId,
+                period
+        );
+    }
+
     @Transactional
     public UsageRecord incrementUsed(String credentialId, String period, int capUnits, int delta) {
         ensureRow(credentialId, period, capUnits);
@@ -109,7 +122,7 @@ public class UsageRepository {
                 oldUsed,
                 newUsed,
                 reason,
-                SqlTime.nowText()
+                SqlTime.nowMillis()
         );
     }
 }
@@ -0,0 +1,131 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+@Service
+public class BlankPageDetector {
+    private static final Logger log = LoggerFactory.getLogger(BlankPageDetector.class);
+
+    private final OcrProperties properties;
+
+    public BlankPageDetector(OcrProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isBlank(Path image) {
+        OcrProperties.BlankPage settings = properties.getBlankPage();
+        if (!settings.isEnabled()) {
+            return false;
+        }
+        try {
+            Sample sample = decode(image, settings.getSampleSize());
+            if (sample == null || !looksBlank(sample.page(), settings)) {
+                return false;
+            }
+            // Strokes thinner than the sampling stride can vanish, so confirm the rare blank candidates at full size.
+            if (sample.stride() > 1) {
+                Sample full = decode(image, Integer.MAX_VALUE);
+                if (full == null || !looksBlank(full.page(), settings)) {
+                    return false;
+                }
+            }
+            log.debug("Blank page {}", image);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Blank page check failed for {}: {}", image, e.getMessage());
+            return false;
+        }
+    }
+
+    static Sample decode(Path image, int sampleSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int stride = Math.max(1, Math.ceilDiv(longSide, Math.max(1, sampleSize)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(stride, stride, 0, 0);
+                return new Sample(reader.read(0, param), stride);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static boolean looksBlank(BufferedImage page, OcrProperties.BlankPage settings) {
+        PageStats stats = measure(page, settings.getMarginRatio(), settings.getInkContrast());
+        return stats.pixels() > 0
+                && stats.inkRatio() <= settings.getMaxInkRatio()
+                && stats.stdDev() <= settings.getMaxStdDev();
+    }
+
+    private static PageStats measure(BufferedImage page, double marginRatio, int inkContrast) {
+        int width = page.getWidth();
+        int height = page.getHeight();
+        double margin = Math.max(0, Math.min(0.45, marginRatio));
+        int left = (int) (width * margin);
+        int top = (int) (height * margin);
+        int right = Math.max(left + 1, width - left);
+        int bottom = Math.max(top + 1, height - top);
+
+        long[] histogram = new long[256];
+        int[] row = new int[right - left];
+        long pixels = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int y = top; y < bottom; y++) {
+            page.getRGB(left, y, row.length, 1, row, 0, row.length);
+            for (int rgb : row) {
+                int luminance = (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+                histogram[luminance]++;
+                sum += luminance;
+                sumSquares += (double) luminance * luminance;
+                pixels++;
+            }
+        }
+        if (pixels == 0) {
+            return new PageStats(0, 0, 0);
+        }
+
+        int median = 0;
+        for (long seen = 0; median < 255; median++) {
+            seen += histogram[median];
+            if (seen * 2 >= pixels) {
+                break;
+            }
+        }
+        long ink = 0;
+        for (int level = 0; level < median - Math.max(1, inkContrast); level++) {
+            ink += histogram[level];
+        }
+        double mean = sum / pixels;
+        double variance = Math.max(0, sumSquares / pixels - mean * mean);
+        return new PageStats(pixels, (double) ink / pixels, Math.sqrt(variance));
+    }
+
+    record Sample(BufferedImage page, int stride) {
+    }
+
+    private record PageStats(long pixels, double inkRatio, double stdDev) {
+    }
+}
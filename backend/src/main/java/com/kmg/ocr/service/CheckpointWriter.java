@@ -0,0 +1,282 @@
+package com.kmg.ocr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.repo.JobRepository;
+import com.kmg.ocr.repo.OcrCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class CheckpointWriter {
+    private static final Logger log = LoggerFactory.getLogger(CheckpointWriter.class);
+
+    private final OcrCheckpointRepository checkpointRepository;
+    private final JobRepository jobRepository;
+    private final PageJournal pageJournal;
+    private final OcrProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Object lock = new Object();
+    private final Thread writer;
+    private Map<PageKey, OcrPageResult> pendingPages = new LinkedHashMap<>();
+    private Map<String, Integer> pendingProgress = new LinkedHashMap<>();
+    private int pendingRecords;
+    private long enqueued;
+    private long written;
+    private boolean flushRequested;
+    private final Map<String, RuntimeException> failures = new HashMap<>();
+    private volatile boolean running = true;
+
+    public CheckpointWriter(
+            OcrCheckpointRepository checkpointRepository,
+            JobRepository jobRepository,
+            PageJournal pageJournal,
+            OcrProperties properties,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.checkpointRepository = checkpointRepository;
+        this.jobRepository = jobRepository;
+        this.pageJournal = pageJournal;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.writer = new Thread(this::runWriter, "ocr-db-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void record(String itemId, int pageIndex, OcrPageResult page, int imageDone) {
+        boolean journaled = pageJournal.enabled();
+        if (journaled) {
+            pageJournal.append(itemId, pageIndex, page);
+        }
+        synchronized (lock) {
+            throwIfFailed(itemId);
+            if (!journaled) {
+                pendingPages.put(new PageKey(itemId, pageIndex), page);
+            }
+            pendingProgress.put(itemId, imageDone);
+            pendingRecords++;
+            enqueued++;
+            if (pendingRecords >= maxBatchPages()) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public void flush() {
+        flush(null);
+    }
+
+    public void flush(String itemId) {
+        synchronized (lock) {
+            long target = enqueued;
+            while (written < target && writer.isAlive()) {
+                flushRequested = true;
+                lock.notifyAll();
+                try {
+                    lock.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while saving OCR checkpoints", e);
+                }
+            }
+        }
+        if (!writer.isAlive()) {
+            writeBatch(drain());
+        }
+        if (itemId != null) {
+            synchronized (lock) {
+                throwIfFailed(itemId);
+            }
+        }
+    }
+
+    public void discard(String itemId) {
+        flush(itemId);
+        checkpointRepository.deleteByItemId(itemId);
+        pageJournal.delete(itemId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writeBatch(drain());
+        } catch (Exception e) {
+            log.warn("Failed to save OCR checkpoints on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            Batch batch;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + Math.max(50, properties.getCheckpoint().getFlushIntervalMs());
+                while (running && !flushRequested && pendingRecords < maxBatchPages()) {
+                    long waitMillis = deadline - System.currentTimeMillis();
+                    if (waitMillis <= 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                batch = drain();
+            }
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                log.warn("Failed to save OCR checkpoints: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void throwIfFailed(String itemId) {
+        RuntimeException failure = failures.get(itemId);
+        if (failure != null) {
+            throw new RuntimeException("Failed to save OCR checkpoints: " + failure.getMessage(), failure);
+        }
+    }
+
+    private Batch drain() {
+        synchronized (lock) {
+            Batch batch = new Batch(pendingPages, pendingProgress, enqueued);
+            pendingPages = new LinkedHashMap<>();
+            pendingProgress = new LinkedHashMap<>();
+            pendingRecords = 0;
+            flushRequested = false;
+            return batch;
+        }
+    }
+
+    private void writeBatch(Batch batch) {
+        Set<String> itemIds = new LinkedHashSet<>(batch.progress().keySet());
+        batch.pages().keySet().forEach(key -> itemIds.add(key.itemId()));
+        if (!itemIds.isEmpty()) {
+            try {
+                write(batch.pages(), batch.progress());
+                succeeded(itemIds);
+            } catch (RuntimeException e) {
+                if (itemIds.size() == 1) {
+                    failed(batch.pages(), batch.progress(), itemIds, e);
+                } else {
+                    // Retry item by item so one item's bad write does not fail every running job.
+                    for (String itemId : itemIds) {
+                        writeItem(itemId, batch);
+                    }
+                }
+            }
+        }
+        synchronized (lock) {
+            written = Math.max(written, batch.sequence());
+            lock.notifyAll();
+        }
+    }
+
+    private void writeItem(String itemId, Batch batch) {
+        Map<PageKey, OcrPageResult> pages = new LinkedHashMap<>();
+        batch.pages().forEach((key, page) -> {
+            if (key.itemId().equals(itemId)) {
+                pages.put(key, page);
+            }
+        });
+        Map<String, Integer> progress = batch.progress().containsKey(itemId)
+                ? Map.of(itemId, batch.progress().get(itemId))
+                : Map.of();
+        try {
+            write(pages, progress);
+            succeeded(Set.of(itemId));
+        } catch (RuntimeException e) {
+            failed(pages, progress, Set.of(itemId), e);
+        }
+    }
+
+    private void write(Map<PageKey, OcrPageResult> pages, Map<String, Integer> progress) {
+        List<OcrCheckpointRepository.CheckpointRow> rows = toRows(pages);
+        pageJournal.force();
+        transactionTemplate.executeWithoutResult(status -> {
+            checkpointRepository.upsertBatch(rows);
+            jobRepository.updateItemProgress(progress);
+        });
+    }
+
+    private void succeeded(Set<String> itemIds) {
+        synchronized (lock) {
+            failures.keySet().removeAll(itemIds);
+        }
+    }
+
+    private void failed(Map<PageKey, OcrPageResult> pages, Map<String, Integer> progress, Set<String> itemIds,
+                        RuntimeException e) {
+        log.warn("Failed to save OCR checkpoints for items {}, will retry: {}", itemIds, e.getMessage());
+        synchronized (lock) {
+            pages.forEach(pendingPages::putIfAbsent);
+            progress.forEach(pendingProgress::putIfAbsent);
+            pendingRecords += progress.size();
+            for (String itemId : itemIds) {
+                failures.put(itemId, e);
+            }
+        }
+    }
+
+    private List<OcrCheckpointRepository.CheckpointRow> toRows(Map<PageKey, OcrPageResult> pages) {
+        List<OcrCheckpointRepository.CheckpointRow> rows = new ArrayList<>(pages.size());
+        for (Map.Entry<PageKey, OcrPageResult> entry : pages.entrySet()) {
+            OcrPageResult page = entry.getValue();
+            try {
+                rows.add(new OcrCheckpointRepository.CheckpointRow(
+                        entry.getKey().itemId(),
+                        entry.getKey().pageIndex(),
+                        page.imagePath().toString(),
+                        page.fullText(),
+                        objectMapper.writeValueAsString(page.words())
+                ));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to serialize OCR checkpoint words", e);
+            }
+        }
+        return rows;
+    }
+
+    private int maxBatchPages() {
+        return Math.max(1, properties.getCheckpoint().getMaxBatchPages());
+    }
+
+    private record PageKey(String itemId, int pageIndex) {
+    }
+
+    private record Batch(
+            Map<PageKey, OcrPageResult> pages,
+            Map<String, Integer> progress,
+            long sequence
+    ) {
+    }
+}
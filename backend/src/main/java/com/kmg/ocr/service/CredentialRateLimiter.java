@@ -0,0 +1,113 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class CredentialRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(CredentialRateLimiter.class);
+
+    private final OcrProperties properties;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public CredentialRateLimiter(OcrProperties properties) {
+        this.properties = properties;
+    }
+
+    public long reserve(String credentialId, int permits) {
+        if (!properties.getRateLimit().isEnabled() || permits <= 0) {
+            return 0;
+        }
+        return bucket(credentialId).reserve(permits, System.nanoTime()) / 1_000_000L;
+    }
+
+    public boolean isCoolingDown(String credentialId) {
+        if (!properties.getRateLimit().isEnabled()) {
+            return false;
+        }
+        Bucket bucket = buckets.get(credentialId);
+        return bucket != null && bucket.isCoolingDown(System.nanoTime());
+    }
+
+    public void onSuccess(String credentialId) {
+        if (!properties.getRateLimit().isEnabled()) {
+            return;
+        }
+        bucket(credentialId).increase();
+    }
+
+    public void onThrottled(String credentialId) {
+        if (!properties.getRateLimit().isEnabled()) {
+            return;
+        }
+        double perMinute = bucket(credentialId).decrease(System.nanoTime());
+        log.info("Credential {} throttled by Vision, rate lowered to {}/min", credentialId, Math.round(perMinute));
+    }
+
+    private Bucket bucket(String credentialId) {
+        return buckets.computeIfAbsent(credentialId, id -> new Bucket(properties.getRateLimit()));
+    }
+
+    private static final class Bucket {
+        private final OcrProperties.RateLimit settings;
+        private double perMinute;
+        private double tokens;
+        private long lastRefillNanos;
+        private long cooldownUntilNanos;
+
+        private Bucket(OcrProperties.RateLimit settings) {
+            this.settings = settings;
+            this.perMinute = clamp(settings.getInitialPerMinute());
+            this.tokens = capacity();
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long reserve(int permits, long now) {
+            refill(now);
+            tokens -= permits;
+            long waitNanos = tokens >= 0 ? 0 : (long) (-tokens / perSecond() * 1_000_000_000L);
+            return Math.max(waitNanos, cooldownUntilNanos - now);
+        }
+
+        synchronized boolean isCoolingDown(long now) {
+            return cooldownUntilNanos - now > 0;
+        }
+
+        synchronized void increase() {
+            perMinute = clamp(perMinute + settings.getIncreasePerMinute());
+        }
+
+        synchronized double decrease(long now) {
+            refill(now);
+            perMinute = clamp(perMinute * settings.getDecreaseFactor());
+            tokens = Math.min(tokens, 0);
+            cooldownUntilNanos = now + settings.getCooldownMs() * 1_000_000L;
+            return perMinute;
+        }
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+            lastRefillNanos = now;
+            tokens = Math.min(capacity(), tokens + elapsedSeconds * perSecond());
+        }
+
+        private double perSecond() {
+            return perMinute / 60.0;
+        }
+
+        private double capacity() {
+            return Math.max(1.0, perSecond() * Math.max(1, settings.getBurstSeconds()));
+        }
+
+        private double clamp(double value) {
+            double min = Math.max(1, settings.getMinPerMinute());
+            double max = Math.max(min, settings.getMaxPerMinute());
+            return Math.max(min, Math.min(max, value));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.model.CredentialSummary;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class CredentialRegistry {
+    private final QuotaService quotaService;
+    private final TimeService timeService;
+    private volatile Snapshot snapshot;
+
+    public CredentialRegistry(QuotaService quotaService, TimeService timeService) {
+        this.quotaService = quotaService;
+        this.timeService = timeService;
+    }
+
+    public List<Slot> activeSlots() {
+        return current().slots();
+    }
+
+    public int consume(String credentialId, int units) {
+        int granted = quotaService.consumeUnits(credentialId, units);
+        Slot slot = current().find(credentialId);
+        if (slot != null) {
+            if (granted < units) {
+                slot.remaining.set(0);
+            } else {
+                slot.remaining.addAndGet(-granted);
+            }
+        }
+        return granted;
+    }
+
+    public void release(String credentialId, int units) {
+        quotaService.releaseUnits(credentialId, units);
+        Slot slot = current().find(credentialId);
+        if (slot != null && units > 0) {
+            slot.remaining.addAndGet(units);
+        }
+    }
+
+    public void markExhausted(String credentialId, String reason) {
+        Slot slot = current().find(credentialId);
+        if (slot != null) {
+            slot.remaining.set(0);
+        }
+        quotaService.markExhausted(credentialId, reason);
+        invalidate();
+    }
+
+    public CredentialSummary adjustUsage(String credentialId, int newUsed, String reason) {
+        CredentialSummary updated = quotaService.adjustUsage(credentialId, newUsed, reason);
+        invalidate();
+        return updated;
+    }
+
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot existing = snapshot;
+        if (existing != null && System.currentTimeMillis() < existing.validUntilMillis()) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = snapshot;
+            if (existing != null && System.currentTimeMillis() < existing.validUntilMillis()) {
+                return existing;
+            }
+            List<Slot> slots = quotaService.listCredentialSummaries().stream()
+                    .filter(c -> "ACTIVE".equals(c.status()))
+                    .sorted(Comparator.comparing(CredentialSummary::fileName))
+                    .map(c -> new Slot(c.id(), c.fileName(), c.filePath(), c.remainingUnits()))
+                    .toList();
+            Snapshot built = new Snapshot(slots, timeService.nextResetAt().toInstant().toEpochMilli());
+            snapshot = built;
+            return built;
+        }
+    }
+
+    private record Snapshot(List<Slot> slots, long validUntilMillis) {
+        Slot find(String credentialId) {
+            for (Slot slot : slots) {
+                if (slot.id().equals(credentialId)) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final class Slot {
+        private final String id;
+        private final String fileName;
+        private final String filePath;
+        private final AtomicInteger remaining;
+
+        private Slot(String id, String fileName, String filePath, int remaining) {
+            this.id = id;
+            this.fileName = fileName;
+            this.filePath = filePath;
+            this.remaining = new AtomicInteger(remaining);
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public String fileName() {
+            return fileName;
+        }
+
+        public String filePath() {
+            return filePath;
+        }
+
+        public int remainingUnits() {
+            return remaining.get();
+        }
+    }
+}
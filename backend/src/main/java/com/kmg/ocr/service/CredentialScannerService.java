@@ -22,17 +22,20 @@ public class CredentialScannerService {
 
     private final OcrProperties properties;
     private final CredentialRepository credentialRepository;
+    private final CredentialRegistry credentialRegistry;
     private final ApplicationArguments applicationArguments;
     private final ObjectMapper objectMapper;
 
     public CredentialScannerService(
             OcrProperties properties,
             CredentialRepository credentialRepository,
+            CredentialRegistry credentialRegistry,
             ApplicationArguments applicationArguments,
             ObjectMapper objectMapper
     ) {
         this.properties = properties;
         this.credentialRepository = credentialRepository;
+        this.credentialRegistry = credentialRegistry;
         this.applicationArguments = applicationArguments;
         this.objectMapper = objectMapper;
     }
@@ -61,6 +64,7 @@ public class CredentialScannerService {
             }
 
             credentialRepository.setActiveByKnownFingerprints(activeFingerprints);
+            credentialRegistry.invalidate();
             log.info("Credential scan complete. active={}", activeFingerprints.size());
         } catch (Exception e) {
             log.error("Credential scan failed: {}", e.getMessage(), e);
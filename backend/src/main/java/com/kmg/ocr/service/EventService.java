@@ -1,6 +1,8 @@
 package com.kmg.ocr.service;
 
+import com.kmg.ocr.config.OcrProperties;
 import com.kmg.ocr.dto.EventMessage;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -8,33 +10,344 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class EventService {
     private static final Logger log = LoggerFactory.getLogger(EventService.class);
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private static final String PROGRESS_TYPE = "item-progress";
+    private static final String RESYNC_TYPE = "resync";
+    private static final String CONNECTED_TYPE = "connected";
+    private static final int MAX_SENDS_PER_DRAIN = 64;
 
-    public SseEmitter subscribe() {
+    private final OcrProperties properties;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<String, ProgressSlot> progressSlots = new ConcurrentHashMap<>();
+    private final ArrayDeque<EventMessage> history = new ArrayDeque<>();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService progressTimer;
+
+    public EventService(OcrProperties properties) {
+        this.properties = properties;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, properties.getEvents().getDispatchThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.progressTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(String jobId, Collection<String> types, Long lastEventId) {
         SseEmitter emitter = new SseEmitter(0L);
-        emitters.add(emitter);
+        Subscriber subscriber = new Subscriber(
+                emitter,
+                jobId == null || jobId.isBlank() ? null : jobId,
+                types == null ? Set.of() : Set.copyOf(types.stream().filter(type -> !type.isBlank()).toList())
+        );
+        synchronized (history) {
+            List<EventMessage> initial = new ArrayList<>();
+            initial.add(new EventMessage(0, CONNECTED_TYPE, null, "Connected", OffsetDateTime.now().toString(),
+                    Map.of("latestEventId", sequence.get())));
+            if (lastEventId != null) {
+                initial.addAll(replayAfter(subscriber, lastEventId));
+            }
+            subscriber.replay(initial);
+            subscribers.add(subscriber);
+        }
 
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError(ex -> emitters.remove(emitter));
+        emitter.onCompletion(subscriber::detach);
+        emitter.onTimeout(subscriber::detach);
+        emitter.onError(ex -> subscriber.detach());
 
         return emitter;
     }
 
     public void publish(String type, String jobId, String message, Object payload) {
-        EventMessage event = new EventMessage(type, jobId, message, OffsetDateTime.now().toString(), payload);
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event().name(type).data(event));
-            } catch (IOException e) {
-                log.debug("Removing SSE emitter after send failure: {}", e.getMessage());
-                emitters.remove(emitter);
+        EventMessage event = new EventMessage(0, type, jobId, message, OffsetDateTime.now().toString(), payload);
+        if (PROGRESS_TYPE.equals(type)) {
+            throttleProgress(event);
+            return;
+        }
+        flushProgress(jobId);
+        dispatch(event);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        progressTimer.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private void dispatch(EventMessage event) {
+        synchronized (history) {
+            EventMessage numbered = new EventMessage(
+                    sequence.incrementAndGet(),
+                    event.type(),
+                    event.jobId(),
+                    event.message(),
+                    event.timestamp(),
+                    event.payload()
+            );
+            history.addLast(numbered);
+            while (history.size() > Math.max(1, properties.getEvents().getReplayBufferSize())) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(numbered)) {
+                    subscriber.offer(numbered);
+                }
+            }
+        }
+    }
+
+    private List<EventMessage> replayAfter(Subscriber subscriber, long lastEventId) {
+        long latest = sequence.get();
+        EventMessage oldest = history.peekFirst();
+        boolean missed = lastEventId > latest || (oldest == null ? lastEventId < latest : lastEventId < oldest.id() - 1);
+        List<EventMessage> replay = new ArrayList<>();
+        if (missed) {
+            replay.add(new EventMessage(0, RESYNC_TYPE, null, "Event history unavailable, reload state",
+                    OffsetDateTime.now().toString(), Map.of("latestEventId", latest)));
+            return replay;
+        }
+        for (EventMessage event : history) {
+            if (event.id() > lastEventId && subscriber.accepts(event)) {
+                replay.add(event);
+            }
+        }
+        return replay;
+    }
+
+    private void throttleProgress(EventMessage event) {
+        String key = progressKey(event);
+        long interval = 1000L / Math.max(1, properties.getEvents().getProgressPerSecond());
+        ProgressSlot slot = progressSlots.computeIfAbsent(key, ignored -> new ProgressSlot(event.jobId()));
+        boolean sendNow = false;
+        synchronized (slot) {
+            long now = System.currentTimeMillis();
+            if (slot.pending == null && now - slot.lastSentAt >= interval) {
+                slot.lastSentAt = now;
+                sendNow = true;
+            } else {
+                boolean scheduled = slot.pending != null;
+                slot.pending = event;
+                if (!scheduled) {
+                    long delay = Math.max(0, slot.lastSentAt + interval - now);
+                    progressTimer.schedule(() -> sendPending(slot), delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (sendNow) {
+            dispatch(event);
+        }
+    }
+
+    private void sendPending(ProgressSlot slot) {
+        EventMessage pending;
+        synchronized (slot) {
+            pending = slot.pending;
+            slot.pending = null;
+            if (pending != null) {
+                slot.lastSentAt = System.currentTimeMillis();
+            }
+        }
+        if (pending != null) {
+            dispatch(pending);
+        }
+    }
+
+    private void flushProgress(String jobId) {
+        if (jobId == null) {
+            return;
+        }
+        Iterator<ProgressSlot> slots = progressSlots.values().iterator();
+        while (slots.hasNext()) {
+            ProgressSlot slot = slots.next();
+            if (jobId.equals(slot.jobId)) {
+                sendPending(slot);
+                slots.remove();
+            }
+        }
+    }
+
+    private static String progressKey(EventMessage event) {
+        Object folder = event.payload() instanceof Map<?, ?> payload ? payload.get("folder") : null;
+        return event.jobId() + "|" + Objects.toString(folder, "");
+    }
+
+    private static final class ProgressSlot {
+        private final String jobId;
+        private long lastSentAt;
+        private EventMessage pending;
+
+        private ProgressSlot(String jobId) {
+            this.jobId = jobId;
+        }
+    }
+
+    private static final class QueuedEvent {
+        private EventMessage event;
+
+        private QueuedEvent(EventMessage event) {
+            this.event = event;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String jobId;
+        private final Set<String> types;
+        private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<>();
+        private final Map<String, QueuedEvent> queuedProgress = new HashMap<>();
+        private boolean draining;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, String jobId, Set<String> types) {
+            this.emitter = emitter;
+            this.jobId = jobId;
+            this.types = types;
+        }
+
+        private boolean accepts(EventMessage event) {
+            return (jobId == null || jobId.equals(event.jobId()))
+                    && (types.isEmpty() || types.contains(event.type()));
+        }
+
+        private void offer(EventMessage event) {
+            boolean startDrain = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                boolean progress = PROGRESS_TYPE.equals(event.type());
+                if (progress) {
+                    QueuedEvent queued = queuedProgress.get(progressKey(event));
+                    if (queued != null && queued == queue.peekLast()) {
+                        queued.event = event;
+                        return;
+                    }
+                }
+                if (queue.size() >= Math.max(1, properties.getEvents().getSubscriberQueueSize())
+                        && !dropOldestProgress()) {
+                    log.debug("Closing SSE subscriber with {} undelivered events", queue.size());
+                    closed = true;
+                } else {
+                    QueuedEvent queued = new QueuedEvent(event);
+                    queue.add(queued);
+                    if (progress) {
+                        queuedProgress.put(progressKey(event), queued);
+                    }
+                    if (!draining) {
+                        draining = true;
+                        startDrain = true;
+                    }
+                }
+            }
+            if (closed) {
+                close();
+            } else if (startDrain) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void replay(List<EventMessage> events) {
+            if (events.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                for (EventMessage event : events) {
+                    QueuedEvent queued = new QueuedEvent(event);
+                    queue.add(queued);
+                    if (PROGRESS_TYPE.equals(event.type())) {
+                        queuedProgress.put(progressKey(event), queued);
+                    }
+                }
+                draining = true;
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        private boolean dropOldestProgress() {
+            Iterator<QueuedEvent> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                QueuedEvent queued = iterator.next();
+                if (PROGRESS_TYPE.equals(queued.event.type())) {
+                    iterator.remove();
+                    queuedProgress.remove(progressKey(queued.event), queued);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void drain() {
+            for (int sent = 0; sent < MAX_SENDS_PER_DRAIN; sent++) {
+                EventMessage next;
+                synchronized (this) {
+                    QueuedEvent queued = queue.poll();
+                    if (queued == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                    if (PROGRESS_TYPE.equals(queued.event.type())) {
+                        queuedProgress.remove(progressKey(queued.event), queued);
+                    }
+                    next = queued.event;
+                }
+                try {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(next.type()).data(next);
+                    if (next.id() > 0) {
+                        builder.id(Long.toString(next.id()));
+                    }
+                    emitter.send(builder);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Removing SSE emitter after send failure: {}", e.getMessage());
+                    close();
+                    return;
+                }
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        private boolean detach() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+                queuedProgress.clear();
+            }
+            return subscribers.remove(this);
+        }
+
+        private void close() {
+            if (detach()) {
+                try {
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.debug("Failed to complete SSE emitter: {}", e.getMessage());
+                }
             }
         }
     }
@@ -0,0 +1,419 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.DiscoveredFolder;
+import com.kmg.ocr.model.FolderIndex;
+import com.kmg.ocr.model.IndexedImage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class FolderIndexService {
+    private static final Logger log = LoggerFactory.getLogger(FolderIndexService.class);
+    private static final Set<String> SUPPORTED = Set.of("png", "jpg", "jpeg", "webp");
+    private static final int NUMBER_WIDTH = 12;
+    private static final long MTIME_GRANULARITY_MS = 2000;
+    private static final Comparator<IndexedImage> NATURAL_ORDER = Comparator
+            .comparing(IndexedImage::sortKey)
+            .thenComparing(image -> image.path().toString());
+
+    private final OcrProperties properties;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Set<Path>> watchedRoots = new ConcurrentHashMap<>();
+    private final ForkJoinPool scanPool;
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    public FolderIndexService(OcrProperties properties) {
+        this.properties = properties;
+        this.scanPool = new ForkJoinPool(
+                Math.max(1, properties.getFolderIndex().getScanThreads()),
+                pool -> {
+                    var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("folder-scan-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                null,
+                false
+        );
+
+        WatchService service = null;
+        if (properties.getFolderIndex().isWatchEnabled()) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("Folder watch unavailable, falling back to mtime checks: {}", e.getMessage());
+            }
+        }
+        this.watchService = service;
+        if (service != null) {
+            this.watcher = new Thread(this::runWatcher, "folder-index-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+        } else {
+            this.watcher = null;
+        }
+    }
+
+    public FolderIndex index(Path folder) {
+        Path root = folder.toAbsolutePath().normalize();
+        Entry entry = entries.computeIfAbsent(root, Entry::new);
+        FolderIndex index;
+        synchronized (entry) {
+            entry.lastAccessAt = System.currentTimeMillis();
+            if (entry.index == null || !isFresh(entry)) {
+                rescan(entry);
+            }
+            index = entry.index;
+        }
+        evictIfNeeded();
+        return index;
+    }
+
+    public List<DiscoveredFolder> discover(Path root, DiscoveryListener listener) {
+        Path start = root.toAbsolutePath().normalize();
+        ConcurrentLinkedQueue<DiscoveredFolder> found = new ConcurrentLinkedQueue<>();
+        AtomicInteger directories = new AtomicInteger();
+        AtomicInteger folders = new AtomicInteger();
+        ForkJoinTask<Long> task = scanPool.submit(new DiscoveryScan(start, false, found, directories, folders));
+        while (true) {
+            try {
+                task.get(500, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                listener.onProgress(directories.get(), folders.get());
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Folder discovery interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException io ? io.getCause() : e.getCause();
+                throw new RuntimeException("Failed to scan folder: " + cause.getMessage(), cause);
+            }
+        }
+        listener.onProgress(directories.get(), folders.get());
+
+        List<DiscoveredFolder> sorted = new ArrayList<>(found);
+        sorted.sort(Comparator.comparing(folder -> naturalSortKey(start.relativize(folder.folder()).toString())));
+        return sorted;
+    }
+
+    public void invalidate(Path folder) {
+        Entry entry = entries.get(folder.toAbsolutePath().normalize());
+        if (entry != null) {
+            entry.dirty = true;
+        }
+    }
+
+    public boolean isSupported(Path path) {
+        String name = path.getFileName().toString();
+        int idx = name.lastIndexOf('.');
+        if (idx < 0) {
+            return false;
+        }
+        return SUPPORTED.contains(name.substring(idx + 1).toLowerCase(Locale.ROOT));
+    }
+
+    public static String naturalSortKey(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(name.length() + NUMBER_WIDTH);
+        int i = 0;
+        while (i < name.length()) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                key.append(c);
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < name.length() && name.charAt(i) >= '0' && name.charAt(i) <= '9') {
+                i++;
+            }
+            String digits = name.substring(start, i);
+            String number;
+            try {
+                number = Long.toString(Long.parseLong(digits));
+            } catch (NumberFormatException e) {
+                number = digits;
+            }
+            for (int pad = number.length(); pad < NUMBER_WIDTH; pad++) {
+                key.append(' ');
+            }
+            key.append(number);
+        }
+        return key.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close folder watch service: {}", e.getMessage());
+            }
+        }
+        scanPool.shutdownNow();
+    }
+
+    private boolean isFresh(Entry entry) {
+        if (entry.dirty) {
+            return false;
+        }
+        long scannedAt = entry.index.scannedAtMillis();
+        for (Map.Entry<Path, Long> directory : entry.directoryMtimes.entrySet()) {
+            try {
+                long modified = Files.getLastModifiedTime(directory.getKey(), LinkOption.NOFOLLOW_LINKS).toMillis();
+                // A change in the same mtime tick as the scan leaves the mtime unchanged, so rescan until that tick has passed.
+                if (modified != directory.getValue() || modified >= scannedAt - MTIME_GRANULARITY_MS) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rescan(Entry entry) {
+        entry.dirty = false;
+        ConcurrentLinkedQueue<IndexedImage> images = new ConcurrentLinkedQueue<>();
+        Map<Path, Long> directories = new ConcurrentHashMap<>();
+        try {
+            scanPool.invoke(new DirectoryScan(entry.root, images, directories));
+        } catch (UncheckedIOException e) {
+            entry.dirty = true;
+            throw new RuntimeException("Failed to scan folder: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        List<IndexedImage> sorted = new ArrayList<>(images);
+        sorted.sort(NATURAL_ORDER);
+        long now = System.currentTimeMillis();
+        entry.index = new FolderIndex(entry.root, List.copyOf(sorted), now);
+        entry.directoryMtimes = new HashMap<>(directories);
+        watch(entry, directories.keySet());
+    }
+
+    private void watch(Entry entry, Set<Path> directories) {
+        if (watchService == null) {
+            return;
+        }
+        unwatch(entry);
+        try {
+            for (Path directory : directories) {
+                WatchKey key = directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                watchedRoots.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(entry.root);
+                entry.watchKeys.add(key);
+            }
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            log.debug("Watching {} failed, using mtime checks only: {}", entry.root, e.getMessage());
+        }
+    }
+
+    private void unwatch(Entry entry) {
+        for (WatchKey key : entry.watchKeys) {
+            Set<Path> roots = watchedRoots.get(key);
+            if (roots != null) {
+                roots.remove(entry.root);
+                if (roots.isEmpty()) {
+                    watchedRoots.remove(key);
+                    key.cancel();
+                }
+            }
+        }
+        entry.watchKeys.clear();
+    }
+
+    private void evictIfNeeded() {
+        int maxEntries = Math.max(1, properties.getFolderIndex().getMaxEntries());
+        while (entries.size() > maxEntries) {
+            Entry oldest = entries.values().stream()
+                    .min(Comparator.comparingLong(entry -> entry.lastAccessAt))
+                    .orElse(null);
+            if (oldest == null) {
+                return;
+            }
+            synchronized (oldest) {
+                if (entries.remove(oldest.root, oldest)) {
+                    unwatch(oldest);
+                }
+            }
+        }
+    }
+
+    private void runWatcher() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            key.pollEvents();
+            Set<Path> roots = watchedRoots.get(key);
+            if (roots != null) {
+                for (Path root : roots) {
+                    invalidate(root);
+                }
+            }
+            if (!key.reset()) {
+                watchedRoots.remove(key);
+            }
+        }
+    }
+
+    private final class DirectoryScan extends RecursiveAction {
+        private final Path directory;
+        private final ConcurrentLinkedQueue<IndexedImage> images;
+        private final Map<Path, Long> directories;
+
+        private DirectoryScan(Path directory, ConcurrentLinkedQueue<IndexedImage> images, Map<Path, Long> directories) {
+            this.directory = directory;
+            this.images = images;
+            this.directories = directories;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryScan> children = new ArrayList<>();
+            try {
+                directories.put(directory, Files.getLastModifiedTime(directory, LinkOption.NOFOLLOW_LINKS).toMillis());
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path child : stream) {
+                        BasicFileAttributes attributes = Files.readAttributes(
+                                child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory()) {
+                            children.add(new DirectoryScan(child, images, directories));
+                            continue;
+                        }
+                        if (attributes.isSymbolicLink()) {
+                            if (!Files.isRegularFile(child)) {
+                                continue;
+                            }
+                            attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                        }
+                        if (attributes.isRegularFile() && isSupported(child)) {
+                            images.add(new IndexedImage(
+                                    child,
+                                    naturalSortKey(child.getFileName().toString()),
+                                    attributes.size(),
+                                    attributes.lastModifiedTime().toMillis()
+                            ));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(children);
+        }
+    }
+
+    private final class DiscoveryScan extends RecursiveTask<Long> {
+        private final Path directory;
+        private final boolean insideFolder;
+        private final ConcurrentLinkedQueue<DiscoveredFolder> found;
+        private final AtomicInteger directories;
+        private final AtomicInteger folders;
+
+        private DiscoveryScan(Path directory, boolean insideFolder, ConcurrentLinkedQueue<DiscoveredFolder> found,
+                              AtomicInteger directories, AtomicInteger folders) {
+            this.directory = directory;
+            this.insideFolder = insideFolder;
+            this.found = found;
+            this.directories = directories;
+            this.folders = folders;
+        }
+
+        @Override
+        protected Long compute() {
+            List<Path> subdirectories = new ArrayList<>();
+            long images = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attributes = Files.readAttributes(
+                            child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(child);
+                    } else if ((attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(child))
+                            && isSupported(child)) {
+                        images++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            directories.incrementAndGet();
+
+            boolean folder = !insideFolder && images > 0;
+            List<DiscoveryScan> children = new ArrayList<>(subdirectories.size());
+            for (Path subdirectory : subdirectories) {
+                children.add(new DiscoveryScan(subdirectory, insideFolder || folder, found, directories, folders));
+            }
+            for (DiscoveryScan child : invokeAll(children)) {
+                images += child.join();
+            }
+            if (folder) {
+                found.add(new DiscoveredFolder(directory, (int) Math.min(Integer.MAX_VALUE, images)));
+                folders.incrementAndGet();
+            }
+            return images;
+        }
+    }
+
+    @FunctionalInterface
+    public interface DiscoveryListener {
+        void onProgress(int directoriesScanned, int foldersFound);
+    }
+
+    private static final class Entry {
+        private final Path root;
+        private final List<WatchKey> watchKeys = new ArrayList<>();
+        private volatile FolderIndex index;
+        private volatile Map<Path, Long> directoryMtimes = Map.of();
+        private volatile boolean dirty;
+        private volatile long lastAccessAt;
+
+        private Entry(Path root) {
+            this.root = root;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.kmg.ocr.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import com.kmg.ocr.repo.FolderManifestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Service
+public class FolderManifestService {
+    private static final Logger log = LoggerFactory.getLogger(FolderManifestService.class);
+
+    private final FolderManifestRepository repository;
+    private final OcrService ocrService;
+    private final OcrProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public FolderManifestService(
+            FolderManifestRepository repository,
+            OcrService ocrService,
+            OcrProperties properties,
+            ObjectMapper objectMapper
+    ) {
+        this.repository = repository;
+        this.ocrService = ocrService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean enabled() {
+        return properties.getManifest().isEnabled();
+    }
+
+    public Map<Integer, OcrPageResult> unchangedPages(String folderPath, List<Path> images, int fromIndex) {
+        if (!enabled()) {
+            return Map.of();
+        }
+        Map<String, FolderManifestRepository.ManifestRow> manifest = load(folderPath);
+        if (manifest.isEmpty()) {
+            return Map.of();
+        }
+        Path folder = Path.of(folderPath);
+        String fingerprint = ocrService.settingsFingerprint();
+        Map<Integer, OcrPageResult> unchanged = new HashMap<>();
+        for (int i = fromIndex; i < images.size(); i++) {
+            Path image = images.get(i);
+            FolderManifestRepository.ManifestRow row = manifest.get(relativePath(folder, image));
+            if (row == null || !fingerprint.equals(row.settingsFingerprint())) {
+                continue;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+                if (attributes.size() != row.sizeBytes()) {
+                    continue;
+                }
+                if (attributes.lastModifiedTime().toMillis() != row.modifiedAt()
+                        && !row.contentHash().equals(contentHash(image))) {
+                    continue;
+                }
+                unchanged.put(i, new OcrPageResult(image, row.fullText(), readWords(row.wordsJson())));
+            } catch (IOException | RuntimeException e) {
+                log.debug("Manifest entry for {} not reusable: {}", image, e.getMessage());
+            }
+        }
+        return unchanged;
+    }
+
+    public void save(String folderPath, List<Path> images, Map<Integer, OcrPageResult> pages) {
+        if (!enabled()) {
+            return;
+        }
+        Path folder = Path.of(folderPath);
+        Map<String, FolderManifestRepository.ManifestRow> previous = load(folderPath);
+        String fingerprint = ocrService.settingsFingerprint();
+        List<FolderManifestRepository.ManifestRow> rows = new ArrayList<>(images.size());
+        try {
+            for (int i = 0; i < images.size(); i++) {
+                Path image = images.get(i);
+                OcrPageResult page = pages.get(i);
+                if (page == null) {
+                    continue;
+                }
+                String relativePath = relativePath(folder, image);
+                BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+                long modifiedAt = attributes.lastModifiedTime().toMillis();
+                FolderManifestRepository.ManifestRow old = previous.get(relativePath);
+                String hash = old != null && old.sizeBytes() == attributes.size() && old.modifiedAt() == modifiedAt
+                        ? old.contentHash()
+                        : contentHash(image);
+                rows.add(new FolderManifestRepository.ManifestRow(
+                        relativePath,
+                        attributes.size(),
+                        modifiedAt,
+                        hash,
+                        fingerprint,
+                        page.fullText(),
+                        objectMapper.writeValueAsString(page.words())
+                ));
+            }
+            repository.replaceFolder(folderPath, rows);
+        } catch (Exception e) {
+            log.warn("Failed to save folder manifest for {}: {}", folderPath, e.getMessage());
+        }
+    }
+
+    private Map<String, FolderManifestRepository.ManifestRow> load(String folderPath) {
+        Map<String, FolderManifestRepository.ManifestRow> manifest = new HashMap<>();
+        for (FolderManifestRepository.ManifestRow row : repository.findByFolder(folderPath)) {
+            manifest.put(row.relativePath(), row);
+        }
+        return manifest;
+    }
+
+    private List<OcrWord> readWords(String wordsJson) {
+        try {
+            return objectMapper.readValue(Objects.requireNonNullElse(wordsJson, "[]"), new TypeReference<List<OcrWord>>() {
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse manifest words", e);
+        }
+    }
+
+    private static String relativePath(Path folder, Path image) {
+        return folder.relativize(image.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static String contentHash(Path image) throws IOException {
+        try (InputStream in = Files.newInputStream(image)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.kmg.ocr.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.dto.HotFolderView;
+import com.kmg.ocr.model.IndexedImage;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import com.kmg.ocr.repo.HotFolderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class HotFolderService {
+    private static final Logger log = LoggerFactory.getLogger(HotFolderService.class);
+    private static final DateTimeFormatter PART_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JobService jobService;
+    private final FolderIndexService folderIndexService;
+    private final OcrService ocrService;
+    private final PdfService pdfService;
+    private final CredentialRegistry credentialRegistry;
+    private final HotFolderRepository hotFolderRepository;
+    private final EventService eventService;
+    private final OcrProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Path, Inbox> inboxes = new LinkedHashMap<>();
+    private Thread worker;
+    private volatile boolean running;
+    private volatile String pausedReason;
+    private double pageBudget;
+    private long budgetRefilledAt;
+
+    public HotFolderService(
+            JobService jobService,
+            FolderIndexService folderIndexService,
+            OcrService ocrService,
+            PdfService pdfService,
+            CredentialRegistry credentialRegistry,
+            HotFolderRepository hotFolderRepository,
+            EventService eventService,
+            OcrProperties properties,
+            ObjectMapper objectMapper
+    ) {
+        this.jobService = jobService;
+        this.folderIndexService = folderIndexService;
+        this.ocrService = ocrService;
+        this.pdfService = pdfService;
+        this.credentialRegistry = credentialRegistry;
+        this.hotFolderRepository = hotFolderRepository;
+        this.eventService = eventService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public synchronized void start() {
+        OcrProperties.HotFolder config = properties.getHotFolder();
+        if (!config.isEnabled() || worker != null) {
+            return;
+        }
+        for (String folder : config.getFolders()) {
+            if (folder == null || folder.isBlank()) {
+                continue;
+            }
+            Path path = Path.of(folder).toAbsolutePath().normalize();
+            if (!inboxes.containsKey(path)) {
+                Inbox inbox = new Inbox(path);
+                for (HotFolderRepository.IngestedFile file : hotFolderRepository.findByFolder(path.toString())) {
+                    inbox.ingested.put(file.relativePath(), file);
+                }
+                restoreBuffer(inbox);
+                inbox.refreshView();
+                inboxes.put(path, inbox);
+            }
+        }
+        if (inboxes.isEmpty()) {
+            log.warn("Hot folder mode is enabled but no folders are configured");
+            return;
+        }
+
+        pageBudget = Math.max(0, config.getMaxPagesPerMinute());
+        budgetRefilledAt = System.currentTimeMillis();
+        running = true;
+        worker = new Thread(this::runLoop, "hot-folder-watch");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Watching {} hot folders", inboxes.size());
+    }
+
+    public synchronized List<HotFolderView> status() {
+        return inboxes.values().stream().map(inbox -> inbox.view).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = worker;
+        }
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Inbox inbox : inboxes.values()) {
+            if (thread.isAlive()) {
+                inbox.discardPart();
+            } else {
+                publish(inbox);
+            }
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            for (Inbox inbox : inboxes.values()) {
+                if (!running) {
+                    return;
+                }
+                try {
+                    poll(inbox);
+                } catch (Exception e) {
+                    if (!running) {
+                        return;
+                    }
+                    log.warn("Hot folder poll failed for {}: {}", inbox.folder, e.getMessage());
+                }
+                inbox.refreshView();
+            }
+            try {
+                Thread.sleep(Math.max(100, properties.getHotFolder().getPollIntervalMs()));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void poll(Inbox inbox) {
+        long now = System.currentTimeMillis();
+        if (Files.isDirectory(inbox.folder)) {
+            collectSettled(inbox, now);
+            ingest(inbox);
+        }
+        OcrProperties.HotFolder config = properties.getHotFolder();
+        if (inbox.writer != null && (inbox.buffered.size() >= Math.max(1, config.getPublishPages())
+                || System.currentTimeMillis() - inbox.partStartedAt >= config.getPublishIntervalMs())) {
+            publish(inbox);
+        }
+    }
+
+    private void collectSettled(Inbox inbox, long now) {
+        OcrProperties.HotFolder config = properties.getHotFolder();
+        Set<Path> present = new HashSet<>();
+        List<IndexedImage> settled = new ArrayList<>();
+        for (IndexedImage image : folderIndexService.index(inbox.folder).images()) {
+            Path path = image.path();
+            present.add(path);
+            String relativePath = relativePath(inbox.folder, path);
+            HotFolderRepository.IngestedFile done = inbox.ingested.get(relativePath);
+            if (done != null && done.sizeBytes() == image.sizeBytes() && done.modifiedAt() == image.lastModifiedMillis()) {
+                continue;
+            }
+            if (inbox.buffered.containsKey(relativePath)) {
+                continue;
+            }
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                inbox.candidates.remove(path);
+                inbox.queued.remove(path);
+                continue;
+            }
+            long size = attributes.size();
+            long modifiedAt = attributes.lastModifiedTime().toMillis();
+            if (done != null && done.sizeBytes() == size && done.modifiedAt() == modifiedAt) {
+                inbox.queued.remove(path);
+                continue;
+            }
+            Candidate candidate = inbox.candidates.get(path);
+            if (candidate == null || candidate.sizeBytes() != size || candidate.modifiedAt() != modifiedAt) {
+                // A queued file that was rewritten after settling has to settle again.
+                inbox.queued.remove(path);
+                inbox.candidates.put(path, new Candidate(size, modifiedAt, now, 0));
+                continue;
+            }
+            if (inbox.queued.contains(path)) {
+                continue;
+            }
+            if (size > 0 && candidate.attempts() < Math.max(1, config.getMaxAttempts())
+                    && now - candidate.stableSince() >= config.getSettleMs()) {
+                settled.add(new IndexedImage(path, FolderIndexService.naturalSortKey(relativePath), size, modifiedAt));
+            }
+        }
+        inbox.candidates.keySet().retainAll(present);
+        inbox.queued.retainAll(present);
+
+        settled.sort(Comparator.comparing(IndexedImage::sortKey));
+        for (IndexedImage image : settled) {
+            inbox.queued.add(image.path());
+        }
+    }
+
+    private void ingest(Inbox inbox) {
+        if (inbox.queued.isEmpty()) {
+            return;
+        }
+        String blocked = quotaBlockReason();
+        if (blocked != null) {
+            pause(blocked);
+            return;
+        }
+        int permits = acquirePages(Math.min(inbox.queued.size(), ocrService.batchSize()));
+        if (permits == 0) {
+            return;
+        }
+
+        List<Path> batch = inbox.queued.stream().limit(permits).toList();
+        Map<Path, OcrPageResult> pages;
+        try {
+            pages = jobService.ocrHotFolderBatch(inbox.folder.toString(), batch, properties.getHotFolder().getStrategy());
+        } catch (RuntimeException e) {
+            returnPages(batch.size());
+            if (!running) {
+                throw e;
+            }
+            pause(e.getMessage());
+            return;
+        }
+        returnPages(batch.size() - pages.size());
+        resume();
+
+        for (Path image : batch) {
+            inbox.queued.remove(image);
+            Candidate candidate = inbox.candidates.get(image);
+            OcrPageResult page = pages.get(image);
+            if (page == null) {
+                int attempts = candidate.attempts() + 1;
+                inbox.candidates.put(image, new Candidate(candidate.sizeBytes(), candidate.modifiedAt(), candidate.stableSince(), attempts));
+                if (attempts >= Math.max(1, properties.getHotFolder().getMaxAttempts())) {
+                    eventService.publish("hot-folder-failed", null, "Hot folder image skipped", Map.of(
+                            "folder", inbox.folder.toString(),
+                            "image", image.toString(),
+                            "attempts", attempts
+                    ));
+                }
+                continue;
+            }
+            HotFolderRepository.IngestedFile file = new HotFolderRepository.IngestedFile(
+                    relativePath(inbox.folder, image), candidate.sizeBytes(), candidate.modifiedAt());
+            if (!unchanged(image, file)) {
+                // Rewritten while being OCR'd; the next poll picks up the new version.
+                inbox.candidates.remove(image);
+                continue;
+            }
+            inbox.candidates.remove(image);
+            append(inbox, file, page);
+        }
+        if (!pages.isEmpty()) {
+            eventService.publish("hot-folder-ingested", null, "Hot folder images processed", Map.of(
+                    "folder", inbox.folder.toString(),
+                    "pages", pages.size(),
+                    "bufferedPages", inbox.buffered.size(),
+                    "queuedFiles", inbox.queued.size()
+            ));
+        }
+    }
+
+    private void append(Inbox inbox, HotFolderRepository.IngestedFile file, OcrPageResult page) {
+        try {
+            hotFolderRepository.saveBuffered(inbox.folder.toString(), file, page.fullText(), writeWords(page.words()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to save buffered hot folder page {}: {}", page.imagePath(), e.getMessage());
+        }
+        appendToPart(inbox, file, page);
+    }
+
+    private void appendToPart(Inbox inbox, HotFolderRepository.IngestedFile file, OcrPageResult page) {
+        if (inbox.writer == null) {
+            inbox.pdfPath = nextPdfPath(inbox.folder);
+            inbox.writer = pdfService.openWriter(inbox.pdfPath);
+            inbox.partStartedAt = System.currentTimeMillis();
+        }
+        inbox.writer.append(page);
+        inbox.buffered.put(file.relativePath(), file);
+    }
+
+    private void restoreBuffer(Inbox inbox) {
+        String folderPath = inbox.folder.toString();
+        long firstBufferedAt = Long.MAX_VALUE;
+        try {
+            for (HotFolderRepository.BufferedPage buffered : hotFolderRepository.findBuffered(folderPath)) {
+                HotFolderRepository.IngestedFile file = buffered.file();
+                Path image = inbox.folder.resolve(file.relativePath());
+                if (!unchanged(image, file)) {
+                    hotFolderRepository.deleteBuffered(folderPath, file.relativePath());
+                    continue;
+                }
+                appendToPart(inbox, file, new OcrPageResult(image, buffered.fullText(), readWords(buffered.wordsJson())));
+                firstBufferedAt = Math.min(firstBufferedAt, buffered.bufferedAt());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to restore buffered hot folder pages for {}: {}", inbox.folder, e.getMessage());
+            inbox.discardPart();
+            return;
+        }
+        if (!inbox.buffered.isEmpty()) {
+            inbox.partStartedAt = firstBufferedAt;
+            log.info("Restored {} buffered hot folder pages for {}", inbox.buffered.size(), inbox.folder);
+        }
+    }
+
+    private static boolean unchanged(Path image, HotFolderRepository.IngestedFile file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+            return attributes.size() == file.sizeBytes() && attributes.lastModifiedTime().toMillis() == file.modifiedAt();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String writeWords(List<OcrWord> words) {
+        try {
+            return objectMapper.writeValueAsString(words);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize hot folder words", e);
+        }
+    }
+
+    private List<OcrWord> readWords(String wordsJson) {
+        try {
+            return objectMapper.readValue(wordsJson, new TypeReference<List<OcrWord>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse buffered hot folder words", e);
+        }
+    }
+
+    private void publish(Inbox inbox) {
+        if (inbox.writer == null) {
+            return;
+        }
+        List<HotFolderRepository.IngestedFile> files = new ArrayList<>(inbox.buffered.values());
+        Path written;
+        try {
+            written = inbox.writer.finish();
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish hot folder PDF {}: {}", inbox.pdfPath, e.getMessage());
+            inbox.discardPart();
+            // The buffered rows are kept, so the next part starts from them instead of re-running OCR.
+            if (running) {
+                restoreBuffer(inbox);
+            }
+            return;
+        }
+        inbox.writer = null;
+        inbox.buffered.clear();
+
+        hotFolderRepository.markPublished(inbox.folder.toString(), files, written.toString());
+        for (HotFolderRepository.IngestedFile file : files) {
+            inbox.ingested.put(file.relativePath(), file);
+        }
+        inbox.publishedPdfs++;
+        inbox.publishedPages += files.size();
+        inbox.lastPdfPath = written.toString();
+        eventService.publish("hot-folder-published", null, "Hot folder PDF published", Map.of(
+                "folder", inbox.folder.toString(),
+                "pdfPath", written.toString(),
+                "pages", files.size()
+        ));
+    }
+
+    private String quotaBlockReason() {
+        List<CredentialRegistry.Slot> slots = credentialRegistry.activeSlots();
+        if (slots.isEmpty()) {
+            return "No active credentials";
+        }
+        long remaining = slots.stream().mapToLong(CredentialRegistry.Slot::remainingUnits).sum();
+        if (remaining <= Math.max(0, properties.getHotFolder().getMinRemainingUnits())) {
+            return "Credential quota reserve reached";
+        }
+        return null;
+    }
+
+    private int acquirePages(int wanted) {
+        int perMinute = properties.getHotFolder().getMaxPagesPerMinute();
+        if (perMinute <= 0) {
+            return wanted;
+        }
+        long now = System.currentTimeMillis();
+        pageBudget = Math.min(perMinute, pageBudget + (now - budgetRefilledAt) * perMinute / 60000.0);
+        budgetRefilledAt = now;
+        int granted = (int) Math.min(wanted, Math.floor(pageBudget));
+        pageBudget -= granted;
+        return granted;
+    }
+
+    private void returnPages(int pages) {
+        int perMinute = properties.getHotFolder().getMaxPagesPerMinute();
+        if (perMinute > 0 && pages > 0) {
+            pageBudget = Math.min(perMinute, pageBudget + pages);
+        }
+    }
+
+    private void pause(String reason) {
+        if (reason != null && !reason.equals(pausedReason)) {
+            log.warn("Hot folder ingestion paused: {}", reason);
+            eventService.publish("hot-folder-paused", null, "Hot folder ingestion paused", Map.of("reason", reason));
+        }
+        pausedReason = reason;
+    }
+
+    private void resume() {
+        if (pausedReason != null) {
+            pausedReason = null;
+            eventService.publish("hot-folder-resumed", null, "Hot folder ingestion resumed", null);
+        }
+    }
+
+    private Path nextPdfPath(Path folder) {
+        Path name = folder.getFileName();
+        String base = (name == null ? "inbox" : name.toString()) + "_" + LocalDateTime.now().format(PART_STAMP);
+        Path pdfDir = Path.of(properties.getOutput().getPdfDir());
+        Path candidate = pdfDir.resolve(base + ".pdf");
+        for (int attempt = 1; Files.exists(candidate); attempt++) {
+            candidate = pdfDir.resolve(base + "_" + attempt + ".pdf");
+        }
+        return candidate;
+    }
+
+    private static String relativePath(Path folder, Path image) {
+        return folder.relativize(image.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private record Candidate(long sizeBytes, long modifiedAt, long stableSince, int attempts) {
+    }
+
+    private final class Inbox {
+        private final Path folder;
+        private final Map<String, HotFolderRepository.IngestedFile> ingested = new HashMap<>();
+        private final Map<Path, Candidate> candidates = new HashMap<>();
+        private final Set<Path> queued = new LinkedHashSet<>();
+        private final Map<String, HotFolderRepository.IngestedFile> buffered = new LinkedHashMap<>();
+        private PdfService.SearchablePdfWriter writer;
+        private Path pdfPath;
+        private long partStartedAt;
+        private int publishedPdfs;
+        private long publishedPages;
+        private String lastPdfPath;
+        private volatile HotFolderView view;
+
+        private Inbox(Path folder) {
+            this.folder = folder;
+        }
+
+        private void discardPart() {
+            if (writer != null) {
+                writer.close();
+            }
+            writer = null;
+            buffered.clear();
+        }
+
+        private void refreshView() {
+            int maxAttempts = Math.max(1, properties.getHotFolder().getMaxAttempts());
+            int failed = (int) candidates.values().stream().filter(candidate -> candidate.attempts() >= maxAttempts).count();
+            view = new HotFolderView(
+                    folder.toString(),
+                    candidates.size() - queued.size() - failed,
+                    queued.size(),
+                    failed,
+                    buffered.size(),
+                    publishedPdfs,
+                    publishedPages,
+                    lastPdfPath,
+                    pausedReason
+            );
+        }
+    }
+}
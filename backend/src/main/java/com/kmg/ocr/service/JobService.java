@@ -1,14 +1,19 @@
 package com.kmg.ocr.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.api.core.ApiFuture;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kmg.ocr.config.OcrProperties;
 import com.kmg.ocr.dto.CreateJobRequest;
+import com.kmg.ocr.dto.DiscoverJobRequest;
 import com.kmg.ocr.dto.JobItemView;
+import com.kmg.ocr.dto.JobPageResponse;
+import com.kmg.ocr.dto.JobSummaryView;
 import com.kmg.ocr.dto.JobView;
 import com.kmg.ocr.model.*;
 import com.kmg.ocr.repo.JobRepository;
 import com.kmg.ocr.repo.OcrCheckpointRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -21,10 +26,6 @@ import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class JobService {
@@ -32,42 +33,100 @@ public class JobService {
 
     private final JobRepository jobRepository;
     private final OcrCheckpointRepository checkpointRepository;
+    private final CheckpointWriter checkpointWriter;
+    private final PageJournal pageJournal;
     private final FileStatsService fileStatsService;
+    private final FolderIndexService folderIndexService;
     private final OcrService ocrService;
     private final PdfService pdfService;
     private final QuotaService quotaService;
+    private final CredentialRegistry credentialRegistry;
+    private final CredentialRateLimiter rateLimiter;
+    private final VisionRetryPolicy retryPolicy;
+    private final OcrResultCache ocrResultCache;
+    private final BlankPageDetector blankPageDetector;
+    private final FolderManifestService folderManifestService;
     private final EventService eventService;
     private final OcrProperties properties;
     private final ObjectMapper objectMapper;
-    private final Object credentialAllocationLock = new Object();
 
-    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService jobExecutor;
+    private final ExecutorService pdfExecutor;
+    private final Map<String, Future<?>> pendingPdfs = new ConcurrentHashMap<>();
+    private final Set<Path> reservedPdfPaths = new HashSet<>();
     private final Set<String> stopRequests = ConcurrentHashMap.newKeySet();
-    private final AtomicReference<String> runningJobId = new AtomicReference<>(null);
+    private final Map<String, Future<?>> activeJobs = new ConcurrentHashMap<>();
+    private final Set<String> runningJobIds = ConcurrentHashMap.newKeySet();
+    private final RoundRobinState hotFolderRrState = new RoundRobinState();
 
     public JobService(
             JobRepository jobRepository,
             OcrCheckpointRepository checkpointRepository,
+            CheckpointWriter checkpointWriter,
+            PageJournal pageJournal,
             FileStatsService fileStatsService,
+            FolderIndexService folderIndexService,
             OcrService ocrService,
             PdfService pdfService,
             QuotaService quotaService,
+            CredentialRegistry credentialRegistry,
+            CredentialRateLimiter rateLimiter,
+            VisionRetryPolicy retryPolicy,
+            OcrResultCache ocrResultCache,
+            BlankPageDetector blankPageDetector,
+            FolderManifestService folderManifestService,
             EventService eventService,
             OcrProperties properties,
             ObjectMapper objectMapper
     ) {
         this.jobRepository = jobRepository;
         this.checkpointRepository = checkpointRepository;
+        this.checkpointWriter = checkpointWriter;
+        this.pageJournal = pageJournal;
         this.fileStatsService = fileStatsService;
+        this.folderIndexService = folderIndexService;
         this.ocrService = ocrService;
         this.pdfService = pdfService;
         this.quotaService = quotaService;
+        this.credentialRegistry = credentialRegistry;
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.ocrResultCache = ocrResultCache;
+        this.blankPageDetector = blankPageDetector;
+        this.folderManifestService = folderManifestService;
         this.eventService = eventService;
         this.properties = properties;
         this.objectMapper = objectMapper;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.jobExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getJobs().getMaxConcurrent()), runnable -> {
+            Thread thread = new Thread(runnable, "ocr-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger pdfThreadCounter = new AtomicInteger();
+        this.pdfExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getJobs().getMaxConcurrent()), runnable -> {
+            Thread thread = new Thread(runnable, "ocr-pdf-" + pdfThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pdfExecutor.shutdown();
+        try {
+            if (!pdfExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("PDF generation still running at shutdown");
+                pdfExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pdfExecutor.shutdownNow();
+        }
     }
 
-    public synchronized String createJob(CreateJobRequest request) {
+    public String createJob(CreateJobRequest request) {
         List<String> folders = request.folders().stream()
                 .map(path -> Path.of(path).toAbsolutePath().normalize().toString())
                 .distinct()
@@ -77,13 +136,57 @@ public class JobService {
             throw new IllegalArgumentException("At least one folder is required.");
         }
 
+        int[] imageCounts = new int[folders.size()];
+        for (int i = 0; i < folders.size(); i++) {
+            imageCounts[i] = fileStatsService.computeStats(folders.get(i)).imageCount();
+            if (imageCounts[i] <= 0) {
+                throw new IllegalArgumentException("Folder has no supported images: " + folders.get(i));
+            }
+        }
+
+        return insertJob(folders, imageCounts, request.strategy(), request.parallelism(), request.incremental());
+    }
+
+    public String discoverJob(DiscoverJobRequest request) {
+        Path root = Path.of(request.root()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("폴더를 찾을 수 없습니다: " + root);
+        }
+
+        List<DiscoveredFolder> discovered = folderIndexService.discover(root, (directories, folders) ->
+                eventService.publish("discovery-progress", null, "Discovering folders", Map.of(
+                        "root", root.toString(),
+                        "directoriesScanned", directories,
+                        "foldersFound", folders
+                )));
+        if (discovered.isEmpty()) {
+            throw new IllegalArgumentException("No folders with supported images under: " + root);
+        }
+        int maxFolders = properties.getJobs().getMaxDiscoveredFolders();
+        if (discovered.size() > maxFolders) {
+            throw new IllegalArgumentException("Discovered " + discovered.size() + " folders, more than the limit of " + maxFolders);
+        }
+
+        List<String> folders = discovered.stream().map(folder -> folder.folder().toString()).toList();
+        int[] imageCounts = discovered.stream().mapToInt(DiscoveredFolder::imageCount).toArray();
+        String jobId = insertJob(folders, imageCounts, request.strategy(), request.parallelism(), request.incremental());
+        eventService.publish("discovery-completed", jobId, "Folder discovery completed", Map.of(
+                "root", root.toString(),
+                "folders", folders.size(),
+                "images", Arrays.stream(imageCounts).asLongStream().sum()
+        ));
+        return jobId;
+    }
+
+    private String insertJob(List<String> folders, int[] imageCounts, KeySelectionStrategy strategy, int parallelism,
+                             boolean incremental) {
         String jobId = UUID.randomUUID().toString();
         OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
 
         JobRecord job = new JobRecord(
                 jobId,
-                request.strategy(),
-                request.parallelism(),
+                strategy,
+                parallelism,
                 JobStatus.CREATED,
                 now,
                 null,
@@ -92,23 +195,18 @@ public class JobService {
                 folders.size(),
                 0,
                 null,
-                null
+                null,
+                incremental
         );
-        jobRepository.insertJob(job);
 
+        List<JobItemRecord> items = new ArrayList<>(folders.size());
         for (int i = 0; i < folders.size(); i++) {
-            String folder = folders.get(i);
-            int imageCount = fileStatsService.computeStats(folder).imageCount();
-            if (imageCount <= 0) {
-                throw new IllegalArgumentException("Folder has no supported images: " + folder);
-            }
-
-            JobItemRecord item = new JobItemRecord(
+            items.add(new JobItemRecord(
                     UUID.randomUUID().toString(),
                     jobId,
                     i,
-                    folder,
-                    imageCount,
+                    folders.get(i),
+                    imageCounts[i],
                     0,
                     JobItemStatus.PENDING,
                     null,
@@ -116,52 +214,124 @@ public class JobService {
                     now,
                     null,
                     null
-            );
-            jobRepository.insertItem(item);
+            ));
         }
+        jobRepository.insertJobWithItems(job, items);
 
         eventService.publish("job-created", jobId, "Job created", Map.of("jobId", jobId));
         return jobId;
     }
 
     public synchronized void startJob(String jobId) {
-        if (runningJobId.get() != null) {
-            throw new IllegalStateException("Another job is already running.");
-        }
-
         JobRecord job = jobRepository.findJobById(jobId)
                 .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
 
-        if (job.status() == JobStatus.RUNNING) {
+        if (activeJobs.containsKey(jobId)) {
             return;
         }
 
         List<JobItemRecord> items = jobRepository.findItemsByJobId(jobId);
         int completedItems = (int) items.stream().filter(this::isAlreadyCompleted).count();
 
-        runningJobId.set(jobId);
         stopRequests.remove(jobId);
-        jobRepository.prepareJobForRun(jobId, completedItems);
-        eventService.publish("job-started", jobId, "Job started", Map.of("processedItems", completedItems));
+        jobRepository.markJobQueued(job.id(), completedItems);
 
+        FutureTask<Void> task = new FutureTask<>(() -> runQueuedJob(jobId), null);
+        activeJobs.put(jobId, task);
         try {
-            jobExecutor.submit(() -> runJob(jobId));
+            jobExecutor.execute(task);
         } catch (Exception ex) {
-            runningJobId.set(null);
+            activeJobs.remove(jobId);
             stopRequests.remove(jobId);
             throw ex;
         }
+        eventService.publish("job-queued", jobId, "Job queued", Map.of(
+                "processedItems", completedItems,
+                "runningJobs", runningJobIds.size()
+        ));
     }
 
     public void stopJob(String jobId) {
         stopRequests.add(jobId);
         eventService.publish("job-stop-requested", jobId, "Stop requested", null);
+
+        Future<?> queued = activeJobs.get(jobId);
+        if (queued != null && !runningJobIds.contains(jobId) && queued.cancel(false)) {
+            markStoppedBeforeStart(jobId);
+        }
     }
 
-    public List<JobView> listJobs() {
-        return jobRepository.findJobs().stream()
-                .map(this::toView)
+    public Map<Path, OcrPageResult> ocrHotFolderBatch(String folderPath, List<Path> images, KeySelectionStrategy strategy) {
+        Map<Path, OcrPageResult> pages = new LinkedHashMap<>();
+        if (images.isEmpty()) {
+            return pages;
+        }
+        List<PageOutcome> outcomes = detectBatchWithCredentialFallback(
+                "hot-folder:" + folderPath, images, Map.of(), 0, images.size(), strategy, hotFolderRrState);
+        for (PageOutcome outcome : outcomes) {
+            Path image = images.get(outcome.index());
+            if (outcome.error() != null) {
+                log.warn("Hot folder OCR failed for {}: {}", image, outcome.error().getMessage());
+                continue;
+            }
+            pages.put(image, outcome.page());
+        }
+        return pages;
+    }
+
+    private void runQueuedJob(String jobId) {
+        if (stopRequests.contains(jobId)) {
+            markStoppedBeforeStart(jobId);
+            return;
+        }
+
+        runningJobIds.add(jobId);
+        jobRepository.prepareJobForRun(jobId, null);
+        JobRecord job = jobRepository.findJobById(jobId).orElse(null);
+        eventService.publish("job-started", jobId, "Job started", Map.of(
+                "processedItems", job == null ? 0 : job.processedItems()
+        ));
+        runJob(jobId);
+    }
+
+    private void markStoppedBeforeStart(String jobId) {
+        try {
+            stopRemainingItems(jobId, "Stopped by user");
+            jobRepository.updateJobStatus(jobId, JobStatus.STOPPED, "Stopped by user", null, null, null, false, true);
+            eventService.publish("job-stopped", jobId, "Job stopped", null);
+        } finally {
+            activeJobs.remove(jobId);
+            stopRequests.remove(jobId);
+        }
+    }
+
+    public JobPageResponse listJobs(List<String> statusFilter, Integer page, Integer size) {
+        int pageIndex = page == null ? 0 : page;
+        int pageSize = size == null ? properties.getJobs().getDefaultPageSize() : size;
+        if (pageIndex < 0) {
+            throw new IllegalArgumentException("page must be >= 0");
+        }
+        if (pageSize < 1 || pageSize > properties.getJobs().getMaxPageSize()) {
+            throw new IllegalArgumentException("size must be between 1 and " + properties.getJobs().getMaxPageSize());
+        }
+        Set<JobStatus> statuses = parseStatuses(statusFilter);
+
+        long total = jobRepository.countJobs(statuses);
+        List<JobSummaryRecord> summaries = jobRepository.findJobSummaries(statuses, pageSize, pageIndex * pageSize);
+        Map<String, List<JobItemView>> runningItems = new HashMap<>();
+        List<String> activeJobIds = summaries.stream()
+                .map(JobSummaryRecord::job)
+                .filter(job -> job.status() == JobStatus.RUNNING)
+                .map(JobRecord::id)
                 .toList();
+        for (JobItemRecord item : jobRepository.findItemsByJobIds(activeJobIds, JobItemStatus.RUNNING)) {
+            runningItems.computeIfAbsent(item.jobId(), ignored -> new ArrayList<>()).add(toItemView(item));
+        }
+
+        List<JobSummaryView> jobs = summaries.stream()
+                .map(summary -> toSummaryView(summary, runningItems.getOrDefault(summary.job().id(), List.of())))
+                .toList();
+        return new JobPageResponse(jobs, pageIndex, pageSize, total);
     }
 
     public JobView getJob(String jobId) {
@@ -172,18 +342,7 @@ public class JobService {
 
     private JobView toView(JobRecord job) {
         List<JobItemView> items = jobRepository.findItemsByJobId(job.id()).stream()
-                .map(item -> new JobItemView(
-                        item.id(),
-                        item.queueIndex(),
-                        item.folderPath(),
-                        item.imageTotal(),
-                        item.imageDone(),
-                        item.status(),
-                        item.pdfPath(),
-                        item.errorReason(),
-                        toText(item.startedAt()),
-                        toText(item.endedAt())
-                ))
+                .map(this::toItemView)
                 .toList();
 
         return new JobView(
@@ -199,17 +358,76 @@ public class JobService {
                 job.processedItems(),
                 job.currentCredentialId(),
                 job.lastError(),
+                job.incremental(),
                 items
         );
     }
 
+    private JobSummaryView toSummaryView(JobSummaryRecord summary, List<JobItemView> runningItems) {
+        JobRecord job = summary.job();
+        return new JobSummaryView(
+                job.id(),
+                job.strategy(),
+                job.parallelism(),
+                job.status(),
+                toText(job.createdAt()),
+                toText(job.startedAt()),
+                toText(job.endedAt()),
+                job.stopReason(),
+                job.totalItems(),
+                job.processedItems(),
+                summary.completedItems(),
+                summary.failedItems(),
+                summary.imageTotal(),
+                summary.imageDone(),
+                job.currentCredentialId(),
+                job.lastError(),
+                job.incremental(),
+                runningItems
+        );
+    }
+
+    private JobItemView toItemView(JobItemRecord item) {
+        return new JobItemView(
+                item.id(),
+                item.queueIndex(),
+                item.folderPath(),
+                item.imageTotal(),
+                item.imageDone(),
+                item.status(),
+                item.pdfPath(),
+                item.errorReason(),
+                toText(item.startedAt()),
+                toText(item.endedAt())
+        );
+    }
+
+    private Set<JobStatus> parseStatuses(List<String> statusFilter) {
+        if (statusFilter == null) {
+            return Set.of();
+        }
+        Set<JobStatus> statuses = EnumSet.noneOf(JobStatus.class);
+        for (String value : statusFilter) {
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            try {
+                statuses.add(JobStatus.valueOf(value.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown job status: " + value);
+            }
+        }
+        return statuses;
+    }
+
     private void runJob(String jobId) {
-        int completedItems = 0;
+        AtomicInteger completedItems = new AtomicInteger();
         Map<String, Object> report = new LinkedHashMap<>();
         report.put("jobId", jobId);
         report.put("startedAt", OffsetDateTime.now(ZoneOffset.UTC).toString());
-        List<Map<String, Object>> reportItems = new ArrayList<>();
+        List<Map<String, Object>> reportItems = Collections.synchronizedList(new ArrayList<>());
         report.put("items", reportItems);
+        Future<?> pendingPdf = null;
 
         try {
             JobRecord job = jobRepository.findJobById(jobId)
@@ -219,29 +437,44 @@ public class JobService {
 
             for (JobItemRecord item : items) {
                 ensureNotStopped(jobId);
+                rethrowIfFailed(pendingPdf);
 
                 if (isAlreadyCompleted(item)) {
-                    completedItems++;
-                    jobRepository.updateJobStatus(jobId, JobStatus.RUNNING, null, null, null, completedItems, false, false);
+                    countCompletedItem(jobId, completedItems);
                     continue;
                 }
 
-                processItem(jobId, item, job.strategy(), job.parallelism(), rrState, reportItems);
-                completedItems++;
-                jobRepository.updateJobStatus(jobId, JobStatus.RUNNING, null, null, null, completedItems, false, false);
+                OcrItemResult ocrResult;
+                try {
+                    ocrResult = processItem(jobId, item, job.strategy(), job.parallelism(), job.incremental(), rrState);
+                } catch (PdfFailedException e) {
+                    awaitPdf(pendingPdf);
+                    throw e;
+                }
+                awaitPdf(pendingPdf);
+                pendingPdf = pdfExecutor.submit(() -> completeItem(jobId, item, ocrResult, completedItems, reportItems));
+                pendingPdfs.put(jobId, pendingPdf);
             }
 
-            jobRepository.updateJobStatus(jobId, JobStatus.COMPLETED, null, null, null, completedItems, false, true);
+            awaitPdf(pendingPdf);
+            jobRepository.updateJobStatus(jobId, JobStatus.COMPLETED, null, null, null, completedItems.get(), false, true);
             report.put("status", "COMPLETED");
-            eventService.publish("job-completed", jobId, "Job completed", Map.of("processedItems", completedItems));
+            eventService.publish("job-completed", jobId, "Job completed", Map.of(
+                    "processedItems", completedItems.get(),
+                    "blankPages", countBlankPages(reportItems)
+            ));
         } catch (StopRequestedException e) {
+            settlePdf(pendingPdf);
+            flushCheckpoints();
             stopRemainingItems(jobId, "Stopped by user");
-            jobRepository.updateJobStatus(jobId, JobStatus.STOPPED, "Stopped by user", null, null, completedItems, false, true);
+            jobRepository.updateJobStatus(jobId, JobStatus.STOPPED, "Stopped by user", null, null, completedItems.get(), false, true);
             report.put("status", "STOPPED");
             report.put("stopReason", "Stopped by user");
             eventService.publish("job-stopped", jobId, "Job stopped", null);
         } catch (Exception e) {
             log.error("Job failed: {}", e.getMessage(), e);
+            settlePdf(pendingPdf);
+            flushCheckpoints();
             stopRemainingItems(jobId, "Stopped due to failure");
             jobRepository.updateJobStatus(
                     jobId,
@@ -249,7 +482,7 @@ public class JobService {
                     "OCR failure",
                     e.getMessage(),
                     null,
-                    completedItems,
+                    completedItems.get(),
                     false,
                     true
             );
@@ -259,12 +492,63 @@ public class JobService {
         } finally {
             reconcileRunningJobIfNeeded(jobId);
             report.put("endedAt", OffsetDateTime.now(ZoneOffset.UTC).toString());
+            report.put("blankPages", countBlankPages(reportItems));
             writeReport(jobId, report);
-            runningJobId.set(null);
+            pendingPdfs.remove(jobId);
+            runningJobIds.remove(jobId);
+            if (runningJobIds.isEmpty()) {
+                releaseQuotaReservations();
+            }
+            activeJobs.remove(jobId);
             stopRequests.remove(jobId);
         }
     }
 
+    private int countBlankPages(List<Map<String, Object>> reportItems) {
+        synchronized (reportItems) {
+            return reportItems.stream().mapToInt(item -> (Integer) item.getOrDefault("blankPages", 0)).sum();
+        }
+    }
+
+    private void countCompletedItem(String jobId, AtomicInteger completedItems) {
+        synchronized (completedItems) {
+            int completed = completedItems.incrementAndGet();
+            jobRepository.updateJobStatus(jobId, JobStatus.RUNNING, null, null, null, completed, false, false);
+        }
+    }
+
+    private void awaitPdf(Future<?> pendingPdf) {
+        if (pendingPdf == null) {
+            return;
+        }
+        try {
+            pendingPdf.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for PDF generation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    private void rethrowIfFailed(Future<?> pendingPdf) {
+        if (pendingPdf != null && pendingPdf.isDone()) {
+            awaitPdf(pendingPdf);
+        }
+    }
+
+    private void settlePdf(Future<?> pendingPdf) {
+        try {
+            awaitPdf(pendingPdf);
+        } catch (Exception e) {
+            log.warn("PDF generation of the previous folder failed: {}", e.getMessage());
+        }
+    }
+
     private boolean isAlreadyCompleted(JobItemRecord item) {
         if (item.status() != JobItemStatus.COMPLETED || item.pdfPath() == null || item.pdfPath().isBlank()) {
             return false;
@@ -272,70 +556,99 @@ public class JobService {
         return Files.exists(Path.of(item.pdfPath()));
     }
 
-    private void processItem(String jobId, JobItemRecord item, KeySelectionStrategy strategy, int parallelism,
-                             RoundRobinState rrState, List<Map<String, Object>> reportItems) {
-        List<Path> images = sortNatural(fileStatsService.listSupportedImages(item.folderPath()));
+    private OcrItemResult processItem(String jobId, JobItemRecord item, KeySelectionStrategy strategy, int parallelism,
+                                      boolean incremental, RoundRobinState rrState) {
+        List<Path> images = fileStatsService.listSupportedImages(item.folderPath());
         ResumeState resume = loadResumeState(item, images);
+        Map<Integer, OcrPageResult> unchanged = incremental
+                ? folderManifestService.unchangedPages(item.folderPath(), images, resume.startIndex())
+                : Map.of();
 
         jobRepository.updateItem(item.id(), JobItemStatus.RUNNING, resume.startIndex(), null, null, true, false);
         eventService.publish("item-started", jobId, "Folder started", Map.of(
                 "folder", item.folderPath(),
-                "resumeFrom", resume.startIndex()
+                "resumeFrom", resume.startIndex(),
+                "unchangedPages", unchanged.size()
         ));
 
-        List<OcrPageResult> pages = new ArrayList<>(resume.cachedPages());
-        if (parallelism > 1) {
-            processImagesParallel(jobId, item, images, pages, resume.startIndex(), strategy, parallelism, rrState);
-        } else {
-            processImagesSequential(jobId, item, images, pages, resume.startIndex(), strategy, rrState);
-        }
+        String pdfName = derivePdfName(item.folderPath());
+        Path pdfPath = reservePdfPath(Path.of(properties.getOutput().getPdfDir()).resolve(pdfName));
+        PdfService.SearchablePdfWriter writer = null;
+        try {
+            writer = pdfService.openWriter(pdfPath);
+            OrderedPageSink sink = new OrderedPageSink(writer);
+            List<OcrPageResult> cachedPages = resume.cachedPages();
+            for (int i = 0; i < cachedPages.size(); i++) {
+                sink.accept(i, cachedPages.get(i));
+            }
+
+            if (properties.getVision().isAsyncEnabled()) {
+                processImagesAsync(jobId, item, images, unchanged, sink, resume.startIndex(), strategy, rrState);
+            } else if (parallelism > 1) {
+                processImagesParallel(jobId, item, images, unchanged, sink, resume.startIndex(), strategy, parallelism, rrState);
+            } else {
+                processImagesSequential(jobId, item, images, unchanged, sink, resume.startIndex(), strategy, rrState);
+            }
 
-        if (pages.size() != images.size()) {
-            throw new RuntimeException("Resume mismatch: expected " + images.size() + " pages but got " + pages.size());
+            if (sink.nextIndex() != images.size()) {
+                throw new RuntimeException("Resume mismatch: expected " + images.size() + " pages but got " + sink.nextIndex());
+            }
+            return new OcrItemResult(writer, pdfPath, images, resume.startIndex(), unchanged.size(), sink.blankPages());
+        } catch (RuntimeException e) {
+            if (writer != null) {
+                writer.close();
+            }
+            releasePdfPath(pdfPath);
+            throw e;
         }
+    }
 
-        String pdfName = derivePdfName(item.folderPath());
-        Path pdfPath = Path.of(properties.getOutput().getPdfDir()).resolve(pdfName);
-        Path writtenPdf = pdfService.writeSearchablePdf(pages, uniquePath(pdfPath));
+    private void completeItem(String jobId, JobItemRecord item, OcrItemResult ocrResult, AtomicInteger completedItems,
+                              List<Map<String, Object>> reportItems) {
+        Path writtenPdf;
+        try {
+            writtenPdf = ocrResult.writer().finish();
+        } catch (Exception ex) {
+            flushCheckpoints();
+            jobRepository.updateItem(item.id(), JobItemStatus.FAILED, ocrResult.imageTotal(), null, ex.getMessage(), false, true);
+            throw new RuntimeException("PDF generation failed for " + item.folderPath() + ": " + ex.getMessage(), ex);
+        } finally {
+            releasePdfPath(ocrResult.pdfPath());
+        }
 
-        checkpointRepository.deleteByItemId(item.id());
-        jobRepository.updateItem(item.id(), JobItemStatus.COMPLETED, images.size(), writtenPdf.toString(), null, false, true);
-        eventService.publish("item-completed", jobId, "Folder completed", Map.of("pdfPath", writtenPdf.toString()));
+        saveManifest(item, ocrResult.images());
+        checkpointWriter.discard(item.id());
+        jobRepository.updateItem(item.id(), JobItemStatus.COMPLETED, ocrResult.imageTotal(), writtenPdf.toString(), null, false, true);
+        eventService.publish("item-completed", jobId, "Folder completed", Map.of(
+                "pdfPath", writtenPdf.toString(),
+                "blankPages", ocrResult.blankPages()
+        ));
 
         Map<String, Object> reportItem = new LinkedHashMap<>();
         reportItem.put("folderPath", item.folderPath());
-        reportItem.put("imageTotal", images.size());
+        reportItem.put("imageTotal", ocrResult.imageTotal());
         reportItem.put("status", "COMPLETED");
         reportItem.put("pdfPath", writtenPdf.toString());
-        reportItem.put("resumedFrom", resume.startIndex());
+        reportItem.put("resumedFrom", ocrResult.resumedFrom());
+        reportItem.put("unchangedPages", ocrResult.unchangedPages());
+        reportItem.put("blankPages", ocrResult.blankPages());
         reportItems.add(reportItem);
+
+        countCompletedItem(jobId, completedItems);
     }
 
     private ResumeState loadResumeState(JobItemRecord item, List<Path> images) {
-        List<OcrCheckpointRepository.CheckpointRow> checkpoints = checkpointRepository.findByItemId(item.id());
-        Map<Integer, OcrCheckpointRepository.CheckpointRow> byIndex = checkpoints.stream()
-                .collect(Collectors.toMap(OcrCheckpointRepository.CheckpointRow::pageIndex, v -> v, (a, b) -> b, LinkedHashMap::new));
-
+        Map<Integer, OcrPageResult> recorded = loadRecordedPages(item.id());
         List<OcrPageResult> cachedPages = new ArrayList<>();
         int contiguous = 0;
 
         while (contiguous < images.size()) {
-            OcrCheckpointRepository.CheckpointRow row = byIndex.get(contiguous);
-            if (row == null) {
-                break;
-            }
-
             Path expected = images.get(contiguous).toAbsolutePath().normalize();
-            Path stored = Path.of(row.imagePath()).toAbsolutePath().normalize();
-            if (!expected.equals(stored)) {
+            OcrPageResult page = recorded.get(contiguous);
+            if (page == null || !expected.equals(page.imagePath().toAbsolutePath().normalize())) {
                 break;
             }
-
-            cachedPages.add(new OcrPageResult(
-                    expected,
-                    row.fullText(),
-                    readWordsJson(row.wordsJson())
-            ));
+            cachedPages.add(new OcrPageResult(expected, page.fullText(), page.words()));
             contiguous++;
         }
 
@@ -348,6 +661,30 @@ public class JobService {
         return new ResumeState(contiguous, cachedPages);
     }
 
+    private Map<Integer, OcrPageResult> loadRecordedPages(String itemId) {
+        Map<Integer, OcrPageResult> pages = new HashMap<>(pageJournal.load(itemId));
+        for (OcrCheckpointRepository.CheckpointRow row : checkpointRepository.findByItemId(itemId)) {
+            pages.computeIfAbsent(row.pageIndex(), ignored -> new OcrPageResult(
+                    Path.of(row.imagePath()),
+                    row.fullText(),
+                    readWordsJson(row.wordsJson())
+            ));
+        }
+        return pages;
+    }
+
+    private void saveManifest(JobItemRecord item, List<Path> images) {
+        if (!folderManifestService.enabled()) {
+            return;
+        }
+        try {
+            checkpointWriter.flush(item.id());
+            folderManifestService.save(item.folderPath(), images, loadRecordedPages(item.id()));
+        } catch (Exception e) {
+            log.warn("Failed to update folder manifest for {}: {}", item.folderPath(), e.getMessage());
+        }
+    }
+
     private List<OcrWord> readWordsJson(String wordsJson) {
         if (wordsJson == null || wordsJson.isBlank()) {
             return List.of();
@@ -360,39 +697,43 @@ public class JobService {
         }
     }
 
-    private String writeWordsJson(List<OcrWord> words) {
-        try {
-            return objectMapper.writeValueAsString(words);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize OCR checkpoint words", e);
-        }
-    }
-
-    private void processImagesSequential(String jobId, JobItemRecord item, List<Path> images, List<OcrPageResult> pages,
+    private void processImagesSequential(String jobId, JobItemRecord item, List<Path> images,
+                                         Map<Integer, OcrPageResult> unchanged, OrderedPageSink sink,
                                          int startIndex, KeySelectionStrategy strategy, RoundRobinState rrState) {
-        for (int i = startIndex; i < images.size(); i++) {
+        int batchSize = ocrService.batchSize();
+        for (int from = startIndex; from < images.size(); from += batchSize) {
             ensureNotStopped(jobId);
-            Path image = images.get(i);
-            try {
-                OcrPageResult page = detectWithCredentialFallback(jobId, image, strategy, rrState);
-                pages.add(page);
-                checkpointRepository.upsert(item.id(), i, image.toString(), page.fullText(), writeWordsJson(page.words()));
-            } catch (Exception ex) {
-                jobRepository.updateItem(item.id(), JobItemStatus.FAILED, i, null, ex.getMessage(), false, true);
-                throw new RuntimeException("OCR failed at " + image + ": " + ex.getMessage(), ex);
-            }
-
-            int done = i + 1;
-            jobRepository.updateItem(item.id(), JobItemStatus.RUNNING, done, null, null, false, false);
-            eventService.publish("item-progress", jobId, "Processing image", Map.of(
-                    "folder", item.folderPath(),
-                    "imageDone", done,
-                    "imageTotal", images.size()
-            ));
+            int to = Math.min(images.size(), from + batchSize);
+            List<PageOutcome> outcomes = detectBatchWithCredentialFallback(jobId, images, unchanged, from, to, strategy, rrState);
+
+            for (PageOutcome outcome : outcomes) {
+                int i = outcome.index();
+                Path image = images.get(i);
+                int done = i + 1;
+                try {
+                    if (outcome.error() != null) {
+                        throw outcome.error();
+                    }
+                    checkpointWriter.record(item.id(), i, outcome.page(), done);
+                } catch (Exception ex) {
+                    flushCheckpoints();
+                    jobRepository.updateItem(item.id(), JobItemStatus.FAILED, i, null, ex.getMessage(), false, true);
+                    throw new RuntimeException("OCR failed at " + image + ": " + ex.getMessage(), ex);
+                }
+                sink.accept(i, outcome.page(), outcome.blank());
+
+                eventService.publish("item-progress", jobId, "Processing image", Map.of(
+                        "folder", item.folderPath(),
+                        "imageDone", done,
+                        "imageTotal", images.size(),
+                        "blankPages", sink.blankPages()
+                ));
+            }
         }
     }
 
-    private void processImagesParallel(String jobId, JobItemRecord item, List<Path> images, List<OcrPageResult> pages,
+    private void processImagesParallel(String jobId, JobItemRecord item, List<Path> images,
+                                       Map<Integer, OcrPageResult> unchanged, OrderedPageSink sink,
                                        int startIndex, KeySelectionStrategy strategy, int parallelism,
                                        RoundRobinState rrState) {
         if (startIndex >= images.size()) {
@@ -400,89 +741,393 @@ public class JobService {
         }
 
         ExecutorService executor = Executors.newFixedThreadPool(parallelism);
-        CompletionService<IndexedPageResult> completionService = new ExecutorCompletionService<>(executor);
-        Map<Integer, OcrPageResult> collected = new ConcurrentHashMap<>();
+        CompletionService<List<PageOutcome>> completionService = new ExecutorCompletionService<>(executor);
         int remaining = images.size() - startIndex;
+        int chunkSize = Math.max(1, Math.min(ocrService.batchSize(), (remaining + parallelism - 1) / parallelism));
+        int submittedChunks = 0;
+        int completedChunks = 0;
+        int completedNew = 0;
 
         try {
-            for (int i = startIndex; i < images.size(); i++) {
-                final int index = i;
-                final Path image = images.get(i);
+            for (int from = startIndex; from < images.size(); from += chunkSize) {
+                final int chunkFrom = from;
+                final int chunkTo = Math.min(images.size(), from + chunkSize);
                 completionService.submit(() -> {
                     ensureNotStopped(jobId);
-                    OcrPageResult result = detectWithCredentialFallback(jobId, image, strategy, rrState);
-                    return new IndexedPageResult(index, result);
+                    return detectBatchWithCredentialFallback(jobId, images, unchanged, chunkFrom, chunkTo, strategy, rrState);
                 });
+                submittedChunks++;
             }
 
-            int completedNew = 0;
-            while (completedNew < remaining) {
+            while (completedChunks < submittedChunks) {
                 ensureNotStopped(jobId);
-                Future<IndexedPageResult> future = completionService.take();
-                IndexedPageResult pageResult = future.get();
-                collected.put(pageResult.index(), pageResult.page());
-
-                checkpointRepository.upsert(
-                        item.id(),
-                        pageResult.index(),
-                        pageResult.page().imagePath().toString(),
-                        pageResult.page().fullText(),
-                        writeWordsJson(pageResult.page().words())
-                );
-
-                completedNew++;
-                int done = startIndex + completedNew;
-                jobRepository.updateItem(item.id(), JobItemStatus.RUNNING, done, null, null, false, false);
-                eventService.publish("item-progress", jobId, "Processing image", Map.of(
-                        "folder", item.folderPath(),
-                        "imageDone", done,
-                        "imageTotal", images.size()
-                ));
+                List<PageOutcome> outcomes = completionService.take().get();
+                completedChunks++;
+
+                RuntimeException failure = null;
+                for (PageOutcome outcome : outcomes) {
+                    if (outcome.error() != null) {
+                        if (failure == null) {
+                            failure = outcome.error();
+                        }
+                        continue;
+                    }
+
+                    completedNew++;
+                    recordPage(jobId, item, images.size(), sink, outcome.index(), outcome.page(), outcome.blank(),
+                            startIndex + completedNew);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
             }
         } catch (StopRequestedException e) {
             throw e;
         } catch (Exception ex) {
-            int done = startIndex + collected.size();
+            int done = startIndex + completedNew;
+            flushCheckpoints();
             jobRepository.updateItem(item.id(), JobItemStatus.FAILED, done, null, ex.getMessage(), false, true);
             throw new RuntimeException("Parallel OCR failed: " + ex.getMessage(), ex);
         } finally {
             executor.shutdownNow();
         }
+    }
 
-        List<OcrPageResult> resumedPages = collected.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(Map.Entry::getValue)
-                .toList();
-        pages.addAll(resumedPages);
+    private void processImagesAsync(String jobId, JobItemRecord item, List<Path> images,
+                                    Map<Integer, OcrPageResult> unchanged, OrderedPageSink sink,
+                                    int startIndex, KeySelectionStrategy strategy, RoundRobinState rrState) {
+        if (startIndex >= images.size()) {
+            return;
+        }
+
+        int maxInFlight = Math.max(1, properties.getVision().getMaxInFlight());
+        int batchSize = ocrService.batchSize();
+        Deque<List<Integer>> queued = new ArrayDeque<>();
+        for (int from = startIndex; from < images.size(); from += batchSize) {
+            List<Integer> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(images.size(), from + batchSize); i++) {
+                chunk.add(i);
+            }
+            queued.add(chunk);
+        }
+
+        BlockingQueue<AsyncBatch> completions = new LinkedBlockingQueue<>();
+        Set<AsyncBatch> inFlight = new HashSet<>();
+        Map<Integer, String> cacheKeys = new HashMap<>();
+        Set<Integer> cacheChecked = new HashSet<>();
+        Map<Integer, Integer> attempts = new HashMap<>();
+        PriorityQueue<DelayedRetry> delayed = new PriorityQueue<>(Comparator.comparingLong(DelayedRetry::dueAtMillis));
+        int quotaFailures = 0;
+        int throttleRetries = 0;
+        int completedNew = 0;
+
+        try {
+            while (!queued.isEmpty() || !inFlight.isEmpty() || !delayed.isEmpty()) {
+                ensureNotStopped(jobId);
+                while (!delayed.isEmpty() && delayed.peek().dueAtMillis() <= System.currentTimeMillis()) {
+                    queued.addFirst(delayed.poll().indexes());
+                }
+
+                while (inFlight.size() < maxInFlight && !queued.isEmpty()) {
+                    List<Integer> chunk = new ArrayList<>();
+                    for (int index : queued.poll()) {
+                        if (!cacheChecked.add(index)) {
+                            chunk.add(index);
+                            continue;
+                        }
+                        PageOutcome cached = lookupCached(index, images.get(index), unchanged, cacheKeys);
+                        if (cached == null) {
+                            chunk.add(index);
+                            continue;
+                        }
+                        completedNew++;
+                        recordPage(jobId, item, images.size(), sink, index, cached.page(), cached.blank(),
+                                startIndex + completedNew);
+                    }
+                    if (chunk.isEmpty()) {
+                        continue;
+                    }
+
+                    CredentialRegistry.Slot credential = selectCredential(strategy, rrState);
+                    awaitRateLimit(jobId, credential.id(), Math.min(chunk.size(), credential.remainingUnits()));
+                    int granted = credentialRegistry.consume(credential.id(), chunk.size());
+                    if (granted == 0) {
+                        queued.addFirst(chunk);
+                        break;
+                    }
+                    List<Integer> assigned = List.copyOf(chunk.subList(0, granted));
+                    if (assigned.size() < chunk.size()) {
+                        queued.addFirst(List.copyOf(chunk.subList(assigned.size(), chunk.size())));
+                    }
+
+                    AsyncBatch batch = new AsyncBatch(credential.id(), assigned, ocrService.detectTextBatchAsync(
+                            assigned.stream().map(images::get).toList(),
+                            Path.of(credential.filePath())
+                    ));
+                    inFlight.add(batch);
+                    batch.future().addListener(() -> completions.add(batch), Runnable::run);
+                }
+
+                long pollMillis = delayed.isEmpty()
+                        ? 1000
+                        : Math.max(1, Math.min(1000, delayed.peek().dueAtMillis() - System.currentTimeMillis()));
+                AsyncBatch batch = completions.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    continue;
+                }
+                inFlight.remove(batch);
+
+                List<OcrService.BatchOutcome> results;
+                try {
+                    results = batch.future().get();
+                } catch (ExecutionException ex) {
+                    releaseUnits(batch.credentialId(), batch.indexes().size());
+                    throw ex.getCause() instanceof RuntimeException runtimeEx ? runtimeEx : new RuntimeException(ex.getCause());
+                }
+
+                retryPolicy.recordRequests(batch.indexes().size());
+                List<Integer> retry = new ArrayList<>();
+                List<Integer> transientRetry = new ArrayList<>();
+                int retryAttempt = 0;
+                String quotaMessage = null;
+                boolean throttled = false;
+                RuntimeException failure = null;
+                int unused = 0;
+                for (int k = 0; k < batch.indexes().size(); k++) {
+                    int index = batch.indexes().get(k);
+                    OcrService.BatchOutcome result = results.get(k);
+                    if (result.error() instanceof OcrService.OcrQuotaExceededException quotaEx) {
+                        quotaMessage = quotaEx.getMessage();
+                        retry.add(index);
+                        continue;
+                    }
+                    if (result.error() instanceof OcrService.OcrRateLimitedException) {
+                        throttled = true;
+                        retry.add(index);
+                        unused++;
+                        continue;
+                    }
+                    if (result.error() != null) {
+                        int attempt = attempts.merge(index, 1, Integer::sum);
+                        if (shouldRetry(result.error(), attempt)) {
+                            transientRetry.add(index);
+                            retryAttempt = Math.max(retryAttempt, attempt);
+                        } else if (failure == null) {
+                            failure = result.error();
+                        }
+                        unused++;
+                        continue;
+                    }
+
+                    ocrResultCache.put(cacheKeys.remove(index), result.page());
+                    completedNew++;
+                    recordPage(jobId, item, images.size(), sink, index, result.page(), false, startIndex + completedNew);
+                }
+
+                if (throttled) {
+                    rateLimiter.onThrottled(batch.credentialId());
+                    if (++throttleRetries > properties.getRateLimit().getMaxThrottleRetries()) {
+                        throw new RuntimeException("Vision rate limit persisted after "
+                                + properties.getRateLimit().getMaxThrottleRetries() + " retries.");
+                    }
+                } else {
+                    rateLimiter.onSuccess(batch.credentialId());
+                }
+                if (!retry.isEmpty()) {
+                    queued.addFirst(retry);
+                }
+                if (!transientRetry.isEmpty()) {
+                    delayed.add(new DelayedRetry(System.currentTimeMillis() + retryPolicy.backoffMillis(retryAttempt), transientRetry));
+                }
+                if (quotaMessage != null) {
+                    credentialRegistry.markExhausted(batch.credentialId(), "Quota exceeded: " + quotaMessage);
+                    if (++quotaFailures >= 10) {
+                        throw new RuntimeException("All credentials are exhausted.");
+                    }
+                } else if (unused > 0) {
+                    releaseUnits(batch.credentialId(), unused);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } catch (StopRequestedException e) {
+            throw e;
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            int done = startIndex + completedNew;
+            flushCheckpoints();
+            jobRepository.updateItem(item.id(), JobItemStatus.FAILED, done, null, ex.getMessage(), false, true);
+            throw new RuntimeException("Async OCR failed: " + ex.getMessage(), ex);
+        } finally {
+            for (AsyncBatch batch : inFlight) {
+                batch.future().cancel(true);
+            }
+        }
     }
 
-    private OcrPageResult detectWithCredentialFallback(String jobId, Path image, KeySelectionStrategy strategy,
-                                                       RoundRobinState rrState) {
-        int attempts = 0;
-        while (attempts < 10) {
+    private List<PageOutcome> detectBatchWithCredentialFallback(String jobId, List<Path> images,
+                                                                Map<Integer, OcrPageResult> unchanged, int from, int to,
+                                                                KeySelectionStrategy strategy, RoundRobinState rrState) {
+        PageOutcome[] outcomes = new PageOutcome[to - from];
+        Map<Integer, String> cacheKeys = new HashMap<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            PageOutcome cached = lookupCached(i, images.get(i), unchanged, cacheKeys);
+            if (cached != null) {
+                outcomes[i - from] = cached;
+            } else {
+                pending.add(i);
+            }
+        }
+
+        int[] attempts = new int[to - from];
+        int quotaFailures = 0;
+        int throttleRetries = 0;
+        int maxThrottleRetries = properties.getRateLimit().getMaxThrottleRetries();
+        while (!pending.isEmpty() && quotaFailures < 10 && throttleRetries <= maxThrottleRetries) {
             ensureNotStopped(jobId);
-            attempts++;
 
-            CredentialSummary credential;
-            synchronized (credentialAllocationLock) {
+            CredentialRegistry.Slot credential;
+            int granted;
+            try {
                 credential = selectCredential(strategy, rrState);
-                quotaService.consumeOneUnit(credential.id());
+                awaitRateLimit(jobId, credential.id(), Math.min(pending.size(), credential.remainingUnits()));
+                granted = credentialRegistry.consume(credential.id(), pending.size());
+            } catch (StopRequestedException ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                for (int index : pending) {
+                    outcomes[index - from] = new PageOutcome(index, null, ex);
+                }
+                pending.clear();
+                break;
+            }
+            if (granted == 0) {
+                quotaFailures++;
+                continue;
             }
+            List<Integer> assigned = List.copyOf(pending.subList(0, granted));
 
+            List<OcrService.BatchOutcome> results;
             try {
-                return ocrService.detectText(image, Path.of(credential.filePath()));
-            } catch (OcrService.OcrQuotaExceededException quotaEx) {
-                quotaService.markExhausted(credential.id(), "Quota exceeded: " + quotaEx.getMessage());
-            } catch (Exception ex) {
-                try {
-                    quotaService.releaseOneUnit(credential.id());
-                } catch (Exception releaseEx) {
-                    log.warn("Failed to release quota unit after OCR error: {}", releaseEx.getMessage());
-                }
+                results = ocrService.detectTextBatch(assigned.stream().map(images::get).toList(), Path.of(credential.filePath()));
+            } catch (RuntimeException ex) {
+                releaseUnits(credential.id(), assigned.size());
                 throw ex;
             }
+
+            retryPolicy.recordRequests(assigned.size());
+            String quotaMessage = null;
+            boolean throttled = false;
+            int retryAttempt = 0;
+            int unused = 0;
+            for (int k = 0; k < assigned.size(); k++) {
+                int index = assigned.get(k);
+                OcrService.BatchOutcome result = results.get(k);
+                if (result.error() instanceof OcrService.OcrQuotaExceededException quotaEx) {
+                    quotaMessage = quotaEx.getMessage();
+                } else if (result.error() instanceof OcrService.OcrRateLimitedException) {
+                    throttled = true;
+                    unused++;
+                } else if (shouldRetry(result.error(), ++attempts[index - from])) {
+                    retryAttempt = Math.max(retryAttempt, attempts[index - from]);
+                    unused++;
+                } else if (result.error() != null) {
+                    outcomes[index - from] = new PageOutcome(index, null, result.error());
+                    unused++;
+                } else {
+                    outcomes[index - from] = new PageOutcome(index, result.page(), null);
+                    ocrResultCache.put(cacheKeys.get(index), result.page());
+                }
+            }
+            pending.removeIf(index -> outcomes[index - from] != null);
+
+            if (throttled) {
+                throttleRetries++;
+                rateLimiter.onThrottled(credential.id());
+            } else {
+                rateLimiter.onSuccess(credential.id());
+            }
+            if (quotaMessage != null) {
+                quotaFailures++;
+                credentialRegistry.markExhausted(credential.id(), "Quota exceeded: " + quotaMessage);
+            } else if (unused > 0) {
+                releaseUnits(credential.id(), unused);
+            }
+            if (retryAttempt > 0) {
+                sleepUnlessStopped(jobId, retryPolicy.backoffMillis(retryAttempt));
+            }
+        }
+
+        RuntimeException exhausted = new RuntimeException(throttleRetries > maxThrottleRetries
+                ? "Vision rate limit persisted after " + maxThrottleRetries + " retries."
+                : "All credentials are exhausted.");
+        for (int index : pending) {
+            outcomes[index - from] = new PageOutcome(index, null, exhausted);
+        }
+        return List.of(outcomes);
+    }
+
+    private PageOutcome lookupCached(int index, Path image, Map<Integer, OcrPageResult> unchanged,
+                                     Map<Integer, String> cacheKeys) {
+        OcrPageResult previous = unchanged.get(index);
+        if (previous != null) {
+            return new PageOutcome(index, previous, null);
+        }
+        String cacheKey = ocrResultCache.keyFor(image);
+        if (cacheKey != null) {
+            Optional<OcrPageResult> cached = ocrResultCache.find(cacheKey, image);
+            if (cached.isPresent()) {
+                return new PageOutcome(index, cached.get(), null);
+            }
+        }
+        if (blankPageDetector.isBlank(image)) {
+            return new PageOutcome(index, new OcrPageResult(image, "", List.of()), null, true);
+        }
+        if (cacheKey != null) {
+            cacheKeys.put(index, cacheKey);
+        }
+        return null;
+    }
+
+    private void recordPage(String jobId, JobItemRecord item, int imageTotal, OrderedPageSink sink, int index,
+                            OcrPageResult page, boolean blank, int done) {
+        checkpointWriter.record(item.id(), index, page, done);
+
+        sink.accept(index, page, blank);
+        eventService.publish("item-progress", jobId, "Processing image", Map.of(
+                "folder", item.folderPath(),
+                "imageDone", done,
+                "imageTotal", imageTotal,
+                "blankPages", sink.blankPages()
+        ));
+    }
+
+    private void flushCheckpoints() {
+        try {
+            checkpointWriter.flush();
+        } catch (Exception e) {
+            log.warn("Failed to flush OCR checkpoints: {}", e.getMessage());
+        }
+    }
+
+    private void releaseQuotaReservations() {
+        try {
+            quotaService.releaseReservations();
+        } catch (Exception e) {
+            log.warn("Failed to release quota reservations: {}", e.getMessage());
+        }
+    }
+
+    private void releaseUnits(String credentialId, int units) {
+        try {
+            credentialRegistry.release(credentialId, units);
+        } catch (Exception releaseEx) {
+            log.warn("Failed to release quota units after OCR error: {}", releaseEx.getMessage());
         }
-        throw new RuntimeException("All credentials are exhausted.");
     }
 
     private void reconcileRunningJobIfNeeded(String jobId) {
@@ -536,31 +1181,93 @@ public class JobService {
         }
     }
 
-    private CredentialSummary selectCredential(KeySelectionStrategy strategy, RoundRobinState rrState) {
-        List<CredentialSummary> available = quotaService.listCredentialSummaries().stream()
-                .filter(c -> "ACTIVE".equals(c.status()))
-                .filter(c -> c.remainingUnits() > 0)
-                .sorted(Comparator.comparing(CredentialSummary::fileName))
-                .toList();
-
-        if (available.isEmpty()) {
+    private CredentialRegistry.Slot selectCredential(KeySelectionStrategy strategy, RoundRobinState rrState) {
+        List<CredentialRegistry.Slot> slots = credentialRegistry.activeSlots();
+        CredentialRegistry.Slot selected = pickCredential(slots, strategy, rrState, true);
+        if (selected == null) {
+            selected = pickCredential(slots, strategy, rrState, false);
+        }
+        if (selected == null) {
             throw new RuntimeException("All credentials are exhausted.");
         }
+        return selected;
+    }
 
+    private CredentialRegistry.Slot pickCredential(List<CredentialRegistry.Slot> slots, KeySelectionStrategy strategy,
+                                                   RoundRobinState rrState, boolean skipThrottled) {
         return switch (strategy) {
-            case MAX_REMAINING -> available.stream().max(Comparator.comparingInt(CredentialSummary::remainingUnits)).orElseThrow();
-            case FILENAME_ORDER -> available.getFirst();
+            case MAX_REMAINING -> {
+                CredentialRegistry.Slot best = null;
+                for (CredentialRegistry.Slot slot : slots) {
+                    if (isSelectable(slot, skipThrottled) && (best == null || slot.remainingUnits() > best.remainingUnits())) {
+                        best = slot;
+                    }
+                }
+                yield best;
+            }
+            case FILENAME_ORDER -> {
+                CredentialRegistry.Slot first = null;
+                for (CredentialRegistry.Slot slot : slots) {
+                    if (isSelectable(slot, skipThrottled)) {
+                        first = slot;
+                        break;
+                    }
+                }
+                yield first;
+            }
             case ROUND_ROBIN -> {
-                int idx = rrState.nextIndex(available.size());
-                yield available.get(idx);
+                CredentialRegistry.Slot next = null;
+                int start = rrState.nextIndex(slots.size());
+                for (int offset = 0; offset < slots.size(); offset++) {
+                    CredentialRegistry.Slot slot = slots.get((start + offset) % slots.size());
+                    if (isSelectable(slot, skipThrottled)) {
+                        next = slot;
+                        break;
+                    }
+                }
+                yield next;
             }
         };
     }
 
+    private boolean isSelectable(CredentialRegistry.Slot slot, boolean skipThrottled) {
+        return slot.remainingUnits() > 0 && !(skipThrottled && rateLimiter.isCoolingDown(slot.id()));
+    }
+
+    private boolean shouldRetry(RuntimeException error, int attempt) {
+        return error != null
+                && retryPolicy.isRetryable(error)
+                && retryPolicy.canRetry(attempt)
+                && retryPolicy.tryAcquireRetry(1);
+    }
+
+    private void awaitRateLimit(String jobId, String credentialId, int permits) {
+        sleepUnlessStopped(jobId, rateLimiter.reserve(credentialId, permits));
+    }
+
+    private void sleepUnlessStopped(String jobId, long waitMillis) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (waitMillis > 0) {
+            ensureNotStopped(jobId);
+            try {
+                Thread.sleep(Math.min(waitMillis, 200));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting to retry OCR", e);
+            }
+            waitMillis = deadline - System.currentTimeMillis();
+        }
+    }
+
     private void ensureNotStopped(String jobId) {
         if (stopRequests.contains(jobId)) {
             throw new StopRequestedException();
         }
+        // Stop spending quota on a job whose previous folder already failed to produce its PDF.
+        Future<?> pendingPdf = pendingPdfs.get(jobId);
+        if (pendingPdf != null && pendingPdf.state() == Future.State.FAILED) {
+            throw new PdfFailedException();
+        }
     }
 
     private void stopRemainingItems(String jobId, String reason) {
@@ -582,30 +1289,6 @@ public class JobService {
         }
     }
 
-    private List<Path> sortNatural(List<Path> paths) {
-        return paths.stream()
-                .sorted(Comparator.comparing(this::naturalKey))
-                .collect(Collectors.toList());
-    }
-
-    private String naturalKey(Path path) {
-        String name = path.getFileName().toString().toLowerCase();
-        Matcher matcher = Pattern.compile("\\d+").matcher(name);
-        StringBuilder key = new StringBuilder();
-        int last = 0;
-        while (matcher.find()) {
-            key.append(name, last, matcher.start());
-            try {
-                key.append(String.format("%12d", Long.parseLong(matcher.group())));
-            } catch (NumberFormatException e) {
-                key.append(matcher.group());
-            }
-            last = matcher.end();
-        }
-        key.append(name.substring(last));
-        return key.toString();
-    }
-
     private String derivePdfName(String folderPath) {
         String folder = Path.of(folderPath).getFileName().toString();
         if (folder.isBlank()) {
@@ -614,15 +1297,29 @@ public class JobService {
         return folder + ".pdf";
     }
 
-    private Path uniquePath(Path path) {
-        if (!Files.exists(path)) {
-            return path;
+    private Path reservePdfPath(Path path) {
+        synchronized (reservedPdfPaths) {
+            String name = path.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String base = dot > 0 ? name.substring(0, dot) : name;
+            String ext = dot > 0 ? name.substring(dot) : "";
+
+            Path candidate = path;
+            int attempt = 0;
+            while (Files.exists(candidate) || reservedPdfPaths.contains(candidate)) {
+                String suffix = attempt == 0 ? "" : "_" + attempt;
+                candidate = path.getParent().resolve(base + "_" + System.currentTimeMillis() + suffix + ext);
+                attempt++;
+            }
+            reservedPdfPaths.add(candidate);
+            return candidate;
+        }
+    }
+
+    private void releasePdfPath(Path path) {
+        synchronized (reservedPdfPaths) {
+            reservedPdfPaths.remove(path);
         }
-        String name = path.getFileName().toString();
-        int dot = name.lastIndexOf('.');
-        String base = dot > 0 ? name.substring(0, dot) : name;
-        String ext = dot > 0 ? name.substring(dot) : "";
-        return path.getParent().resolve(base + "_" + System.currentTimeMillis() + ext);
     }
 
     private String toText(Object value) {
@@ -643,9 +1340,70 @@ public class JobService {
     private static class StopRequestedException extends RuntimeException {
     }
 
-    private record IndexedPageResult(int index, OcrPageResult page) {
+    private static class PdfFailedException extends StopRequestedException {
+    }
+
+    private record AsyncBatch(String credentialId, List<Integer> indexes,
+                              ApiFuture<List<OcrService.BatchOutcome>> future) {
+    }
+
+    private record DelayedRetry(long dueAtMillis, List<Integer> indexes) {
+    }
+
+    private record PageOutcome(int index, OcrPageResult page, RuntimeException error, boolean blank) {
+        PageOutcome(int index, OcrPageResult page, RuntimeException error) {
+            this(index, page, error, false);
+        }
+    }
+
+    private static class OrderedPageSink {
+        private final PdfService.SearchablePdfWriter writer;
+        private final Map<Integer, OcrPageResult> pending = new HashMap<>();
+        private int nextIndex;
+        private int blankPages;
+
+        OrderedPageSink(PdfService.SearchablePdfWriter writer) {
+            this.writer = writer;
+        }
+
+        void accept(int index, OcrPageResult page, boolean blank) {
+            if (blank) {
+                blankPages++;
+            }
+            accept(index, page);
+        }
+
+        void accept(int index, OcrPageResult page) {
+            pending.put(index, page);
+            OcrPageResult next;
+            while ((next = pending.remove(nextIndex)) != null) {
+                writer.append(next);
+                nextIndex++;
+            }
+        }
+
+        int nextIndex() {
+            return nextIndex;
+        }
+
+        int blankPages() {
+            return blankPages;
+        }
     }
 
     private record ResumeState(int startIndex, List<OcrPageResult> cachedPages) {
     }
+
+    private record OcrItemResult(
+            PdfService.SearchablePdfWriter writer,
+            Path pdfPath,
+            List<Path> images,
+            int resumedFrom,
+            int unchangedPages,
+            int blankPages
+    ) {
+        int imageTotal() {
+            return images.size();
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.OcrWord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+@Service
+public class OcrImagePreprocessor {
+    private static final Logger log = LoggerFactory.getLogger(OcrImagePreprocessor.class);
+
+    private final OcrProperties properties;
+
+    public OcrImagePreprocessor(OcrProperties properties) {
+        this.properties = properties;
+    }
+
+    public PreparedImage prepare(byte[] original) {
+        OcrProperties.Preprocess settings = properties.getPreprocess();
+        if (!settings.isEnabled()) {
+            return PreparedImage.original(original);
+        }
+
+        try {
+            int[] size = readSize(original);
+            if (size == null) {
+                return PreparedImage.original(original);
+            }
+
+            int width = size[0];
+            int height = size[1];
+            int maxLongEdge = settings.getMaxLongEdge();
+            boolean downscale = maxLongEdge > 0 && Math.max(width, height) > maxLongEdge;
+            if (!downscale && !settings.isGrayscale()) {
+                return PreparedImage.original(original);
+            }
+
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+            if (source == null) {
+                return PreparedImage.original(original);
+            }
+
+            double ratio = downscale ? (double) maxLongEdge / Math.max(width, height) : 1.0;
+            int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+            int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+            BufferedImage resized = resize(source, targetWidth, targetHeight, settings.isGrayscale());
+            byte[] encoded = encode(resized, settings);
+
+            if (!downscale && encoded.length >= original.length) {
+                return PreparedImage.original(original);
+            }
+            return new PreparedImage(
+                    encoded,
+                    (float) width / targetWidth,
+                    (float) height / targetHeight
+            );
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image preprocessing failed, uploading original bytes: {}", e.getMessage());
+            return PreparedImage.original(original);
+        }
+    }
+
+    private int[] readSize(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int targetWidth, int targetHeight, boolean grayscale) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        int targetType = grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        if (current != source && width == targetWidth && height == targetHeight && current.getType() == targetType) {
+            return current;
+        }
+        return draw(current, targetWidth, targetHeight, targetType);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, OcrProperties.Preprocess settings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if ("png".equalsIgnoreCase(settings.getFormat())) {
+            if (!ImageIO.write(image, "png", out)) {
+                throw new IOException("No PNG writer available");
+            }
+            return out.toByteArray();
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.1f, Math.min(1.0f, settings.getJpegQuality())));
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    public record PreparedImage(byte[] bytes, float scaleX, float scaleY) {
+        static PreparedImage original(byte[] bytes) {
+            return new PreparedImage(bytes, 1f, 1f);
+        }
+
+        public boolean scaled() {
+            return scaleX != 1f || scaleY != 1f;
+        }
+
+        public List<OcrWord> toOriginalCoordinates(List<OcrWord> words) {
+            if (!scaled()) {
+                return words;
+            }
+            return words.stream()
+                    .map(word -> new OcrWord(
+                            word.text(),
+                            word.minX() * scaleX,
+                            word.minY() * scaleY,
+                            word.maxX() * scaleX,
+                            word.maxY() * scaleY
+                    ))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.kmg.ocr.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.dto.OcrCacheStatsResponse;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import com.kmg.ocr.repo.OcrResultCacheRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class OcrResultCache {
+    private static final Logger log = LoggerFactory.getLogger(OcrResultCache.class);
+    private static final int EVICTION_BATCH = 100;
+    private static final int TOUCH_BATCH = 256;
+
+    private final OcrResultCacheRepository repository;
+    private final OcrService ocrService;
+    private final OcrProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong(-1);
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    public OcrResultCache(
+            OcrResultCacheRepository repository,
+            OcrService ocrService,
+            OcrProperties properties,
+            ObjectMapper objectMapper
+    ) {
+        this.repository = repository;
+        this.ocrService = ocrService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean enabled() {
+        return properties.getCache().isEnabled();
+    }
+
+    public String keyFor(Path imagePath) {
+        if (!enabled()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(imagePath)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            digest.update(ocrService.settingsFingerprint().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("Failed to hash image for OCR cache {}: {}", imagePath, e.getMessage());
+            return null;
+        }
+    }
+
+    public Optional<OcrPageResult> find(String cacheKey, Path imagePath) {
+        if (cacheKey == null) {
+            return Optional.empty();
+        }
+        try {
+            Optional<OcrResultCacheRepository.CacheRow> row = repository.findByKey(cacheKey);
+            if (row.isEmpty()) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            pendingTouches.put(cacheKey, System.currentTimeMillis());
+            if (pendingTouches.size() >= TOUCH_BATCH) {
+                flushTouches();
+            }
+            hits.incrementAndGet();
+            List<OcrWord> words = objectMapper.readValue(row.get().wordsJson(), new TypeReference<List<OcrWord>>() {
+            });
+            return Optional.of(new OcrPageResult(imagePath, row.get().fullText(), words));
+        } catch (Exception e) {
+            log.warn("Failed to read OCR cache entry {}: {}", cacheKey, e.getMessage());
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String cacheKey, OcrPageResult page) {
+        if (cacheKey == null) {
+            return;
+        }
+        try {
+            String fullText = page.fullText() == null ? "" : page.fullText();
+            String wordsJson = objectMapper.writeValueAsString(page.words());
+            long sizeBytes = (long) fullText.getBytes(StandardCharsets.UTF_8).length
+                    + wordsJson.getBytes(StandardCharsets.UTF_8).length;
+            long previous = repository.upsert(cacheKey, fullText, wordsJson, sizeBytes, System.currentTimeMillis());
+            currentTotalBytes();
+            totalBytes.addAndGet(sizeBytes - previous);
+            evictIfNeeded();
+        } catch (Exception e) {
+            log.warn("Failed to store OCR cache entry {}: {}", cacheKey, e.getMessage());
+        }
+    }
+
+    public void clear() {
+        synchronized (evictionLock) {
+            pendingTouches.clear();
+            repository.deleteAll();
+            totalBytes.set(0);
+        }
+    }
+
+    public OcrCacheStatsResponse stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        return new OcrCacheStatsResponse(
+                enabled(),
+                repository.countEntries(),
+                currentTotalBytes(),
+                maxBytes(),
+                hitCount,
+                missCount,
+                lookups == 0 ? 0.0 : (double) hitCount / lookups
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushTouches();
+    }
+
+    private void flushTouches() {
+        Map<String, Long> touches = new HashMap<>();
+        for (String cacheKey : List.copyOf(pendingTouches.keySet())) {
+            Long usedAt = pendingTouches.remove(cacheKey);
+            if (usedAt != null) {
+                touches.put(cacheKey, usedAt);
+            }
+        }
+        try {
+            repository.touchAll(touches);
+        } catch (RuntimeException e) {
+            log.warn("Failed to record OCR cache access times: {}", e.getMessage());
+        }
+    }
+
+    private long currentTotalBytes() {
+        long total = totalBytes.get();
+        if (total < 0) {
+            synchronized (evictionLock) {
+                if (totalBytes.get() < 0) {
+                    totalBytes.set(repository.totalSizeBytes());
+                }
+                total = totalBytes.get();
+            }
+        }
+        return total;
+    }
+
+    private long maxBytes() {
+        return Math.max(0, properties.getCache().getMaxSizeMb()) * 1024L * 1024L;
+    }
+
+    private void evictIfNeeded() {
+        long max = maxBytes();
+        if (currentTotalBytes() <= max) {
+            return;
+        }
+        synchronized (evictionLock) {
+            flushTouches();
+            long target = max - max / 10;
+            while (totalBytes.get() > target) {
+                long freed = repository.deleteLeastRecentlyUsed(EVICTION_BATCH);
+                if (freed == 0) {
+                    totalBytes.set(repository.totalSizeBytes());
+                    break;
+                }
+                totalBytes.addAndGet(-freed);
+            }
+        }
+    }
+}
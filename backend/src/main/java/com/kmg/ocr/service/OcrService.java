@@ -1,92 +1,311 @@
 package com.kmg.ocr.service;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.cloud.vision.v1.*;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.rpc.Code;
+import com.kmg.ocr.config.OcrProperties;
 import com.kmg.ocr.model.OcrPageResult;
 import com.kmg.ocr.model.OcrWord;
 import org.springframework.stereotype.Service;
+import org.threeten.bp.Duration;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class OcrService {
+    private static final int MAX_IMAGES_PER_REQUEST = 16;
+    private static final List<String> LANGUAGE_HINTS = List.of("ko", "en");
+    private static final Set<StatusCode.Code> TRANSIENT_STATUS_CODES = Set.of(
+            StatusCode.Code.UNAVAILABLE,
+            StatusCode.Code.DEADLINE_EXCEEDED,
+            StatusCode.Code.INTERNAL,
+            StatusCode.Code.ABORTED
+    );
+    private static final Set<Integer> TRANSIENT_RPC_CODES = Set.of(
+            Code.UNAVAILABLE_VALUE,
+            Code.DEADLINE_EXCEEDED_VALUE,
+            Code.INTERNAL_VALUE,
+            Code.ABORTED_VALUE
+    );
+
+    private final OcrProperties properties;
+    private final OcrImagePreprocessor preprocessor;
     private final Map<String, ImageAnnotatorClient> clients = new ConcurrentHashMap<>();
 
-    public OcrPageResult detectText(Path imagePath, Path credentialPath) {
+    public OcrService(OcrProperties properties, OcrImagePreprocessor preprocessor) {
+        this.properties = properties;
+        this.preprocessor = preprocessor;
+    }
+
+    public int batchSize() {
+        return Math.max(1, Math.min(MAX_IMAGES_PER_REQUEST, properties.getVision().getBatchSize()));
+    }
+
+    public String settingsFingerprint() {
+        OcrProperties.Preprocess preprocess = properties.getPreprocess();
+        return Feature.Type.DOCUMENT_TEXT_DETECTION.name()
+                + ";hints=" + String.join(",", LANGUAGE_HINTS)
+                + ";preprocess=" + (preprocess.isEnabled()
+                ? preprocess.getMaxLongEdge() + "," + preprocess.isGrayscale() + "," + preprocess.getFormat() + "," + preprocess.getJpegQuality()
+                : "off");
+    }
+
+    public List<BatchOutcome> detectTextBatch(List<Path> imagePaths, Path credentialPath) {
+        BatchOutcome[] outcomes = new BatchOutcome[imagePaths.size()];
+
+        ImageAnnotatorClient client;
         try {
-            ImageAnnotatorClient client = getOrCreateClient(credentialPath);
-            ByteString content = ByteString.readFrom(Files.newInputStream(imagePath));
-
-            Image image = Image.newBuilder().setContent(content).build();
-            Feature feature = Feature.newBuilder().setType(Feature.Type.DOCUMENT_TEXT_DETECTION).build();
-            ImageContext context = ImageContext.newBuilder()
-                    .addLanguageHints("ko")
-                    .addLanguageHints("en")
-                    .build();
+            client = getOrCreateClient(credentialPath);
+        } catch (IOException e) {
+            failAll(imagePaths, outcomes, new OcrFailedException("Failed to load credential: " + credentialPath, e));
+            return List.of(outcomes);
+        }
 
-            AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
-                    .setImage(image)
-                    .addFeatures(feature)
-                    .setImageContext(context)
+        for (RequestChunk chunk : buildChunks(imagePaths, outcomes)) {
+            try {
+                applyResponse(imagePaths, chunk, client.batchAnnotateImages(chunk.requests()), outcomes);
+            } catch (ApiException e) {
+                applyFailure(imagePaths, chunk, translateApiException(e), outcomes);
+            }
+        }
+        return List.of(outcomes);
+    }
+
+    public ApiFuture<List<BatchOutcome>> detectTextBatchAsync(List<Path> imagePaths, Path credentialPath) {
+        BatchOutcome[] outcomes = new BatchOutcome[imagePaths.size()];
+
+        ImageAnnotatorClient client;
+        try {
+            client = getOrCreateClient(credentialPath);
+        } catch (IOException e) {
+            failAll(imagePaths, outcomes, new OcrFailedException("Failed to load credential: " + credentialPath, e));
+            return ApiFutures.immediateFuture(List.of(outcomes));
+        }
+
+        List<ApiFuture<Void>> calls = new ArrayList<>();
+        for (RequestChunk chunk : buildChunks(imagePaths, outcomes)) {
+            BatchAnnotateImagesRequest request = BatchAnnotateImagesRequest.newBuilder()
+                    .addAllRequests(chunk.requests())
                     .build();
+            ApiFuture<Void> applied = ApiFutures.transform(
+                    client.batchAnnotateImagesCallable().futureCall(request),
+                    response -> {
+                        applyResponse(imagePaths, chunk, response, outcomes);
+                        return null;
+                    },
+                    MoreExecutors.directExecutor()
+            );
+            calls.add(ApiFutures.catching(
+                    applied,
+                    Throwable.class,
+                    error -> {
+                        applyFailure(imagePaths, chunk, translateFailure(error), outcomes);
+                        return null;
+                    },
+                    MoreExecutors.directExecutor()
+            ));
+        }
+
+        return ApiFutures.transform(
+                ApiFutures.allAsList(calls),
+                ignored -> List.of(outcomes),
+                MoreExecutors.directExecutor()
+        );
+    }
 
-            BatchAnnotateImagesResponse batchResponse = client.batchAnnotateImages(List.of(request));
-            AnnotateImageResponse response = batchResponse.getResponses(0);
+    private List<RequestChunk> buildChunks(List<Path> imagePaths, BatchOutcome[] outcomes) {
+        int batchSize = batchSize();
+        long maxBatchBytes = Math.max(1, properties.getVision().getMaxBatchBytes());
+        List<RequestChunk> chunks = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+        List<AnnotateImageRequest> chunkRequests = new ArrayList<>();
+        List<OcrImagePreprocessor.PreparedImage> chunkImages = new ArrayList<>();
+        long chunkBytes = 0;
 
-            if (response.hasError()) {
-                String message = response.getError().getMessage();
-                if (isQuotaMessage(message)) {
-                    throw new OcrQuotaExceededException(message);
-                }
-                throw new OcrFailedException(message);
+        for (int i = 0; i < imagePaths.size(); i++) {
+            Path imagePath = imagePaths.get(i);
+            OcrImagePreprocessor.PreparedImage prepared;
+            try {
+                prepared = preprocessor.prepare(Files.readAllBytes(imagePath));
+            } catch (IOException e) {
+                outcomes[i] = BatchOutcome.failed(imagePath, new OcrFailedException("Failed to read image: " + imagePath, e));
+                continue;
             }
+            ByteString content = UnsafeByteOperations.unsafeWrap(prepared.bytes());
 
-            String fullText = "";
-            if (response.hasFullTextAnnotation()) {
-                fullText = response.getFullTextAnnotation().getText();
-            } else if (!response.getTextAnnotationsList().isEmpty()) {
-                fullText = response.getTextAnnotationsList().get(0).getDescription();
+            if (!chunkRequests.isEmpty() && (chunkRequests.size() >= batchSize || chunkBytes + content.size() > maxBatchBytes)) {
+                chunks.add(new RequestChunk(List.copyOf(chunkIndexes), List.copyOf(chunkRequests), List.copyOf(chunkImages)));
+                chunkIndexes.clear();
+                chunkRequests.clear();
+                chunkImages.clear();
+                chunkBytes = 0;
             }
+            chunkIndexes.add(i);
+            chunkRequests.add(buildRequest(content));
+            chunkImages.add(prepared);
+            chunkBytes += content.size();
+        }
+
+        if (!chunkRequests.isEmpty()) {
+            chunks.add(new RequestChunk(List.copyOf(chunkIndexes), List.copyOf(chunkRequests), List.copyOf(chunkImages)));
+        }
+        return chunks;
+    }
+
+    private void failAll(List<Path> imagePaths, BatchOutcome[] outcomes, RuntimeException error) {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = BatchOutcome.failed(imagePaths.get(i), error);
+        }
+    }
+
+    private AnnotateImageRequest buildRequest(ByteString content) {
+        Image image = Image.newBuilder().setContent(content).build();
+        Feature feature = Feature.newBuilder().setType(Feature.Type.DOCUMENT_TEXT_DETECTION).build();
+        ImageContext context = ImageContext.newBuilder()
+                .addAllLanguageHints(LANGUAGE_HINTS)
+                .build();
 
-            List<OcrWord> words = extractWords(response.getFullTextAnnotation());
-            return new OcrPageResult(imagePath, fullText, words);
-        } catch (OcrQuotaExceededException | OcrFailedException e) {
-            throw e;
-        } catch (ApiException e) {
-            if (e.getStatusCode() != null && e.getStatusCode().getCode() != null
-                    && "RESOURCE_EXHAUSTED".equals(e.getStatusCode().getCode().name())) {
-                throw new OcrQuotaExceededException(e.getMessage());
+        return AnnotateImageRequest.newBuilder()
+                .setImage(image)
+                .addFeatures(feature)
+                .setImageContext(context)
+                .build();
+    }
+
+    private void applyResponse(List<Path> imagePaths, RequestChunk chunk, BatchAnnotateImagesResponse batchResponse,
+                               BatchOutcome[] outcomes) {
+        List<Integer> indexes = chunk.indexes();
+        for (int k = 0; k < indexes.size(); k++) {
+            int index = indexes.get(k);
+            Path imagePath = imagePaths.get(index);
+            if (k >= batchResponse.getResponsesCount()) {
+                outcomes[index] = BatchOutcome.failed(imagePath, new OcrFailedException("Missing OCR response for " + imagePath));
+                continue;
             }
-            throw new OcrFailedException(e.getMessage(), e);
-        } catch (IOException e) {
-            throw new OcrFailedException("Failed to read image: " + imagePath, e);
+            try {
+                OcrPageResult page = toPageResult(imagePath, batchResponse.getResponses(k));
+                List<OcrWord> words = chunk.images().get(k).toOriginalCoordinates(page.words());
+                outcomes[index] = BatchOutcome.completed(new OcrPageResult(imagePath, page.fullText(), words));
+            } catch (OcrQuotaExceededException | OcrRateLimitedException | OcrFailedException e) {
+                outcomes[index] = BatchOutcome.failed(imagePath, e);
+            }
+        }
+    }
+
+    private void applyFailure(List<Path> imagePaths, RequestChunk chunk, RuntimeException error, BatchOutcome[] outcomes) {
+        for (int index : chunk.indexes()) {
+            outcomes[index] = BatchOutcome.failed(imagePaths.get(index), error);
+        }
+    }
+
+    private OcrPageResult toPageResult(Path imagePath, AnnotateImageResponse response) {
+        if (response.hasError()) {
+            String message = response.getError().getMessage();
+            if (isRateLimitMessage(message)) {
+                throw new OcrRateLimitedException(message);
+            }
+            if (isQuotaMessage(message)) {
+                throw new OcrQuotaExceededException(message);
+            }
+            if (TRANSIENT_RPC_CODES.contains(response.getError().getCode())) {
+                throw new OcrTransientException(message, null);
+            }
+            throw new OcrFailedException(message);
+        }
+
+        String fullText = "";
+        if (response.hasFullTextAnnotation()) {
+            fullText = response.getFullTextAnnotation().getText();
+        } else if (!response.getTextAnnotationsList().isEmpty()) {
+            fullText = response.getTextAnnotationsList().get(0).getDescription();
+        }
+
+        List<OcrWord> words = extractWords(response.getFullTextAnnotation());
+        return new OcrPageResult(imagePath, fullText, words);
+    }
+
+    private RuntimeException translateApiException(ApiException e) {
+        if (e.getStatusCode() != null && e.getStatusCode().getCode() != null
+                && "RESOURCE_EXHAUSTED".equals(e.getStatusCode().getCode().name())) {
+            if (isRateLimitMessage(e.getMessage())) {
+                return new OcrRateLimitedException(e.getMessage());
+            }
+            return new OcrQuotaExceededException(e.getMessage());
+        }
+        StatusCode.Code code = e.getStatusCode() == null ? null : e.getStatusCode().getCode();
+        if (e.isRetryable() || (code != null && TRANSIENT_STATUS_CODES.contains(code))
+                || (code == StatusCode.Code.UNKNOWN && hasIoCause(e.getCause()))) {
+            return new OcrTransientException(e.getMessage(), e);
         }
+        return new OcrFailedException(e.getMessage(), e);
+    }
+
+    private RuntimeException translateFailure(Throwable error) {
+        if (error instanceof ApiException apiEx) {
+            return translateApiException(apiEx);
+        }
+        if (hasIoCause(error)) {
+            return new OcrTransientException(String.valueOf(error.getMessage()), error);
+        }
+        return new OcrFailedException(String.valueOf(error.getMessage()), error);
+    }
+
+    private static boolean hasIoCause(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private ImageAnnotatorClient getOrCreateClient(Path credentialPath) throws IOException {
         String key = credentialPath.toAbsolutePath().normalize().toString();
-        ImageAnnotatorClient existing = clients.get(key);
-        if (existing != null) {
-            return existing;
+        try {
+            return clients.computeIfAbsent(key, ignored -> {
+                try {
+                    return createClient(credentialPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        GoogleCredentials credentials = ServiceAccountCredentials.fromStream(Files.newInputStream(credentialPath));
-        ImageAnnotatorSettings settings = ImageAnnotatorSettings.newBuilder()
-                .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+    private ImageAnnotatorClient createClient(Path credentialPath) throws IOException {
+        GoogleCredentials credentials;
+        try (InputStream in = Files.newInputStream(credentialPath)) {
+            credentials = ServiceAccountCredentials.fromStream(in);
+        }
+        ImageAnnotatorSettings.Builder settings = ImageAnnotatorSettings.newBuilder()
+                .setCredentialsProvider(FixedCredentialsProvider.create(credentials));
+        RetrySettings perRequest = settings.batchAnnotateImagesSettings().getRetrySettings().toBuilder()
+                .setLogicalTimeout(Duration.ofMillis(Math.max(1000, properties.getRetry().getRequestTimeoutMs())))
+                .setMaxAttempts(1)
                 .build();
-        ImageAnnotatorClient created = ImageAnnotatorClient.create(settings);
-        clients.put(key, created);
-        return created;
+        settings.batchAnnotateImagesSettings().setRetrySettings(perRequest);
+        return ImageAnnotatorClient.create(settings.build());
     }
 
     private boolean isQuotaMessage(String message) {
@@ -94,7 +313,19 @@ public class OcrService {
             return false;
         }
         String lower = message.toLowerCase();
-        return lower.contains("resource_exhausted") || lower.contains("quota") || lower.contains("rate limit");
+        return lower.contains("resource_exhausted") || lower.contains("quota");
+    }
+
+    private boolean isRateLimitMessage(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("per minute")
+                || lower.contains("per_minute")
+                || lower.contains("per second")
+                || lower.contains("rate limit")
+                || lower.contains("too many requests");
     }
 
     private List<OcrWord> extractWords(TextAnnotation annotation) {
@@ -147,12 +378,41 @@ public class OcrService {
         return words;
     }
 
+    private record RequestChunk(
+            List<Integer> indexes,
+            List<AnnotateImageRequest> requests,
+            List<OcrImagePreprocessor.PreparedImage> images
+    ) {
+    }
+
+    public record BatchOutcome(Path imagePath, OcrPageResult page, RuntimeException error) {
+        static BatchOutcome completed(OcrPageResult page) {
+            return new BatchOutcome(page.imagePath(), page, null);
+        }
+
+        static BatchOutcome failed(Path imagePath, RuntimeException error) {
+            return new BatchOutcome(imagePath, null, error);
+        }
+    }
+
     public static class OcrQuotaExceededException extends RuntimeException {
         public OcrQuotaExceededException(String message) {
             super(message);
         }
     }
 
+    public static class OcrRateLimitedException extends RuntimeException {
+        public OcrRateLimitedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class OcrTransientException extends OcrFailedException {
+        public OcrTransientException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
     public static class OcrFailedException extends RuntimeException {
         public OcrFailedException(String message) {
             super(message);
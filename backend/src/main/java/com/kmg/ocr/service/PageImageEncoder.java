@@ -0,0 +1,256 @@
+package com.kmg.ocr.service;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+final class PageImageEncoder {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private PageImageEncoder() {
+    }
+
+    static Optional<EncodedImage> encode(byte[] bytes, boolean passthrough) throws IOException {
+        if (passthrough) {
+            Optional<EncodedImage> encoded = passthrough(bytes);
+            if (encoded.isPresent()) {
+                return encoded;
+            }
+        }
+        return reencode(bytes);
+    }
+
+    static Optional<EncodedImage> passthrough(byte[] bytes) {
+        if (isPng(bytes)) {
+            return encodePng(bytes);
+        }
+        if (isJpeg(bytes)) {
+            return encodeJpeg(bytes);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<EncodedImage> reencode(byte[] bytes) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            return Optional.empty();
+        }
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return encodePng(writePng(image));
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage alpha = hasAlpha ? new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY) : null;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            rgb.setRGB(0, y, width, 1, row, 0, width);
+            if (alpha != null) {
+                WritableRaster alphaRaster = alpha.getRaster();
+                for (int x = 0; x < width; x++) {
+                    alphaRaster.setSample(x, y, 0, row[x] >>> 24);
+                }
+            }
+        }
+
+        Optional<EncodedImage> color = encodePng(writePng(rgb));
+        if (alpha == null || color.isEmpty()) {
+            return color;
+        }
+        Optional<EncodedImage> softMask = encodePng(writePng(alpha));
+        return color.map(encoded -> softMask.map(encoded::withSoftMask).orElse(encoded));
+    }
+
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isPng(byte[] bytes) {
+        if (bytes.length < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (bytes[i] != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isJpeg(byte[] bytes) {
+        return bytes.length > 4 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8;
+    }
+
+    private static Optional<EncodedImage> encodeJpeg(byte[] bytes) {
+        int pos = 2;
+        while (pos + 4 <= bytes.length) {
+            if ((bytes[pos] & 0xFF) != 0xFF) {
+                return Optional.empty();
+            }
+            int marker = bytes[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            pos += 2;
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return Optional.empty();
+            }
+
+            int length = readUnsignedShort(bytes, pos);
+            if (length < 2 || pos + length > bytes.length) {
+                return Optional.empty();
+            }
+
+            if (marker == 0xC0 || marker == 0xC1 || marker == 0xC2) {
+                if (length < 8) {
+                    return Optional.empty();
+                }
+                int precision = bytes[pos + 2] & 0xFF;
+                int height = readUnsignedShort(bytes, pos + 3);
+                int width = readUnsignedShort(bytes, pos + 5);
+                int components = bytes[pos + 7] & 0xFF;
+                if (precision != 8 || width <= 0 || height <= 0 || (components != 1 && components != 3)) {
+                    return Optional.empty();
+                }
+                return Optional.of(new EncodedImage(bytes, COSName.DCT_DECODE, width, height, 8, components, false, null));
+            }
+            if (marker >= 0xC3 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                // Lossless and arithmetic-coded JPEGs are not valid DCTDecode input.
+                return Optional.empty();
+            }
+            pos += length;
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<EncodedImage> encodePng(byte[] bytes) {
+        int pos = PNG_SIGNATURE.length;
+        if (pos + 8 + 13 > bytes.length || !"IHDR".equals(chunkType(bytes, pos))) {
+            return Optional.empty();
+        }
+
+        int ihdr = pos + 8;
+        int width = readInt(bytes, ihdr);
+        int height = readInt(bytes, ihdr + 4);
+        int bitDepth = bytes[ihdr + 8] & 0xFF;
+        int colorType = bytes[ihdr + 9] & 0xFF;
+        int compression = bytes[ihdr + 10] & 0xFF;
+        int filter = bytes[ihdr + 11] & 0xFF;
+        int interlace = bytes[ihdr + 12] & 0xFF;
+
+        if (width <= 0 || height <= 0 || compression != 0 || filter != 0 || interlace != 0) {
+            return Optional.empty();
+        }
+
+        int components;
+        if (colorType == 0 && (bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16)) {
+            components = 1;
+        } else if (colorType == 2 && (bitDepth == 8 || bitDepth == 16)) {
+            components = 3;
+        } else {
+            return Optional.empty();
+        }
+
+        ByteArrayOutputStream idat = new ByteArrayOutputStream(bytes.length);
+        while (pos + 12 <= bytes.length) {
+            int length = readInt(bytes, pos);
+            if (length < 0 || pos + 12L + length > bytes.length) {
+                return Optional.empty();
+            }
+            String type = chunkType(bytes, pos);
+            if ("IDAT".equals(type)) {
+                idat.write(bytes, pos + 8, length);
+            } else if ("tRNS".equals(type)) {
+                return Optional.empty();
+            } else if ("IEND".equals(type)) {
+                break;
+            }
+            pos += 12 + length;
+        }
+
+        if (idat.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new EncodedImage(idat.toByteArray(), COSName.FLATE_DECODE, width, height, bitDepth, components, true, null));
+    }
+
+    private static String chunkType(byte[] bytes, int chunkStart) {
+        return new String(bytes, chunkStart + 4, 4, StandardCharsets.US_ASCII);
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xFF) << 24)
+                | ((bytes[pos + 1] & 0xFF) << 16)
+                | ((bytes[pos + 2] & 0xFF) << 8)
+                | (bytes[pos + 3] & 0xFF);
+    }
+
+    record EncodedImage(
+            byte[] data,
+            COSName filter,
+            int width,
+            int height,
+            int bitsPerComponent,
+            int components,
+            boolean pngPredictor,
+            EncodedImage softMask
+    ) {
+        EncodedImage withSoftMask(EncodedImage mask) {
+            return new EncodedImage(data, filter, width, height, bitsPerComponent, components, pngPredictor, mask);
+        }
+
+        PDImageXObject toXObject(PDDocument document) throws IOException {
+            PDColorSpace colorSpace = components == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE;
+            PDImageXObject image = new PDImageXObject(
+                    document,
+                    new ByteArrayInputStream(data),
+                    filter,
+                    width,
+                    height,
+                    bitsPerComponent,
+                    colorSpace
+            );
+            if (pngPredictor) {
+                COSDictionary decodeParms = new COSDictionary();
+                decodeParms.setInt(COSName.PREDICTOR, 15);
+                decodeParms.setInt(COSName.COLORS, components);
+                decodeParms.setInt(COSName.BITS_PER_COMPONENT, bitsPerComponent);
+                decodeParms.setInt(COSName.COLUMNS, width);
+                image.getCOSObject().setItem(COSName.DECODE_PARMS, decodeParms);
+            }
+            if (softMask != null) {
+                image.getCOSObject().setItem(COSName.SMASK, softMask.toXObject(document));
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+@Service
+public class PageJournal {
+    private static final Logger log = LoggerFactory.getLogger(PageJournal.class);
+    private static final int MAGIC = 0x4F43524A;
+    private static final byte VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 5;
+    private static final int RECORD_HEADER_BYTES = 13;
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final OcrProperties properties;
+    private final Map<String, FileChannel> openChannels = new ConcurrentHashMap<>();
+
+    public PageJournal(OcrProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean enabled() {
+        String dir = properties.getCheckpoint().getJournalDir();
+        return properties.getCheckpoint().isJournalEnabled() && dir != null && !dir.isBlank();
+    }
+
+    public void append(String itemId, int pageIndex, OcrPageResult page) {
+        byte[] record = encodeRecord(pageIndex, page);
+        FileChannel channel = openChannels.computeIfAbsent(itemId, this::openForAppend);
+        synchronized (channel) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to append OCR journal for item " + itemId, e);
+            }
+        }
+    }
+
+    public void force() {
+        for (Map.Entry<String, FileChannel> entry : openChannels.entrySet()) {
+            FileChannel channel = entry.getValue();
+            synchronized (channel) {
+                try {
+                    if (channel.isOpen()) {
+                        channel.force(false);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to sync OCR journal for item " + entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    public Map<Integer, OcrPageResult> load(String itemId) {
+        if (!enabled()) {
+            return Map.of();
+        }
+        close(itemId);
+        Path path = journalPath(itemId);
+        if (!Files.exists(path)) {
+            return Map.of();
+        }
+
+        JournalContents contents;
+        try {
+            contents = read(path);
+        } catch (IOException e) {
+            log.warn("Failed to read OCR journal {}, its pages will be OCR'd again: {}", path, e.getMessage());
+            return Map.of();
+        }
+        if (contents == null) {
+            log.warn("Discarding OCR journal {} with an unrecognized header", path);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete unreadable OCR journal {}: {}", path, e.getMessage());
+            }
+            return Map.of();
+        }
+        repair(path, contents);
+        return contents.pages();
+    }
+
+    public void delete(String itemId) {
+        close(itemId);
+        if (!enabled()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(journalPath(itemId));
+        } catch (IOException e) {
+            log.warn("Failed to delete OCR journal for item {}: {}", itemId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String itemId : List.copyOf(openChannels.keySet())) {
+            close(itemId);
+        }
+    }
+
+    private void close(String itemId) {
+        FileChannel channel = openChannels.remove(itemId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close OCR journal for item {}: {}", itemId, e.getMessage());
+            }
+        }
+    }
+
+    private FileChannel openForAppend(String itemId) {
+        Path path = journalPath(itemId);
+        try {
+            Files.createDirectories(path.getParent());
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).put(VERSION).flip());
+            }
+            channel.position(channel.size());
+            return channel;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open OCR journal for item " + itemId, e);
+        }
+    }
+
+    private Path journalPath(String itemId) {
+        return Path.of(properties.getCheckpoint().getJournalDir()).resolve(itemId + ".journal");
+    }
+
+    private void repair(Path path, JournalContents contents) {
+        try {
+            long size = Files.size(path);
+            if (contents.records() > contents.pages().size()) {
+                // Compaction rewrites only the valid records, which also drops a torn tail.
+                compact(path, contents.pages());
+            } else if (contents.validBytes() < size) {
+                log.warn("Truncating OCR journal {} from {} to {} bytes", path, size, contents.validBytes());
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(contents.validBytes());
+                    channel.force(true);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to repair OCR journal {}, keeping {} recovered pages: {}", path, contents.pages().size(), e.getMessage());
+        }
+    }
+
+    private void compact(Path path, Map<Integer, OcrPageResult> pages) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeCompacted(temp, pages);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeCompacted(Path temp, Map<Integer, OcrPageResult> pages) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).put(VERSION).flip());
+            for (Map.Entry<Integer, OcrPageResult> entry : pages.entrySet()) {
+                ByteBuffer buffer = ByteBuffer.wrap(encodeRecord(entry.getKey(), entry.getValue()));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+    }
+
+    private byte[] encodeRecord(int pageIndex, OcrPageResult page) {
+        byte[] payload = encodePayload(pageIndex, page);
+        byte flags = 0;
+        byte[] stored = payload;
+        if (properties.getCheckpoint().isJournalCompress()) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                stored = deflated;
+                flags = FLAG_DEFLATED;
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        return ByteBuffer.allocate(RECORD_HEADER_BYTES + stored.length)
+                .putInt(stored.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(flags)
+                .put(stored)
+                .array();
+    }
+
+    private byte[] encodePayload(int pageIndex, OcrPageResult page) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int[] wordStrings = new int[page.words().size()];
+        for (int i = 0; i < wordStrings.length; i++) {
+            wordStrings[i] = strings.computeIfAbsent(page.words().get(i).text(), key -> strings.size());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + page.words().size() * 18);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(pageIndex);
+            writeString(out, page.imagePath().toString());
+            writeString(out, page.fullText());
+            writeVarInt(out, strings.size());
+            for (String text : strings.keySet()) {
+                writeString(out, text);
+            }
+            writeVarInt(out, wordStrings.length);
+            for (int i = 0; i < wordStrings.length; i++) {
+                OcrWord word = page.words().get(i);
+                writeVarInt(out, wordStrings[i]);
+                out.writeFloat(word.minX());
+                out.writeFloat(word.minY());
+                out.writeFloat(word.maxX());
+                out.writeFloat(word.maxY());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode OCR journal record", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private JournalContents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FILE_HEADER_BYTES) {
+                return new JournalContents(new TreeMap<>(), 0, 0);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("OCR journal too large: " + size + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() < FILE_HEADER_BYTES || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                return null;
+            }
+
+            Map<Integer, OcrPageResult> pages = new TreeMap<>();
+            int records = 0;
+            long validBytes = FILE_HEADER_BYTES;
+            Inflater inflater = new Inflater();
+            try {
+                while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                    int storedLength = buffer.getInt();
+                    int payloadLength = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    byte flags = buffer.get();
+                    if (storedLength < 0 || storedLength > buffer.remaining()
+                            || payloadLength < 0 || payloadLength > MAX_RECORD_BYTES) {
+                        break;
+                    }
+
+                    ByteBuffer stored = buffer.slice(buffer.position(), storedLength);
+                    CRC32 crc = new CRC32();
+                    crc.update(stored.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+
+                    ByteBuffer payload = (flags & FLAG_DEFLATED) != 0
+                            ? inflate(inflater, stored, payloadLength)
+                            : stored;
+                    if (payload == null) {
+                        break;
+                    }
+                    Map.Entry<Integer, OcrPageResult> page = decodePayload(payload);
+                    if (page == null) {
+                        break;
+                    }
+                    pages.put(page.getKey(), page.getValue());
+                    records++;
+                    buffer.position(buffer.position() + storedLength);
+                    validBytes = buffer.position();
+                }
+            } finally {
+                inflater.end();
+            }
+            return new JournalContents(pages, records, validBytes);
+        }
+    }
+
+    private Map.Entry<Integer, OcrPageResult> decodePayload(ByteBuffer payload) {
+        try {
+            int pageIndex = payload.getInt();
+            Path imagePath = Path.of(readString(payload));
+            String fullText = readString(payload);
+            int stringCount = readVarInt(payload);
+            List<String> strings = new ArrayList<>(stringCount);
+            for (int i = 0; i < stringCount; i++) {
+                strings.add(readString(payload));
+            }
+            int wordCount = readVarInt(payload);
+            List<OcrWord> words = new ArrayList<>(wordCount);
+            for (int i = 0; i < wordCount; i++) {
+                String text = strings.get(readVarInt(payload));
+                words.add(new OcrWord(text, payload.getFloat(), payload.getFloat(), payload.getFloat(), payload.getFloat()));
+            }
+            return Map.entry(pageIndex, new OcrPageResult(imagePath, fullText, words));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + 16);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private ByteBuffer inflate(Inflater inflater, ByteBuffer stored, int payloadLength) {
+        inflater.reset();
+        inflater.setInput(stored.duplicate());
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        try {
+            while (payload.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(payload) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null;
+                }
+            }
+        } catch (DataFormatException e) {
+            return null;
+        }
+        return payload.hasRemaining() ? null : payload.flip();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length exceeds record");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative length in OCR journal");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in OCR journal");
+    }
+
+    private record JournalContents(Map<Integer, OcrPageResult> pages, int records, long validBytes) {
+    }
+}
@@ -1,121 +1,200 @@
 package com.kmg.ocr.service;
 
+import com.kmg.ocr.config.OcrProperties;
 import com.kmg.ocr.model.OcrPageResult;
 import com.kmg.ocr.model.OcrWord;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.PDPageContentStream.AppendMode;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
 
 @Service
 public class PdfService {
+    private static final COSName IMAGE_NAME = COSName.getPDFName("Im1");
+    private static final COSName FONT_NAME = COSName.getPDFName("F1");
+
+    private final OcrProperties properties;
+    private final int encodeThreads;
+    private final ExecutorService encodeExecutor;
+
+    public PdfService(OcrProperties properties) {
+        this.properties = properties;
+        int configured = properties.getPdf().getEncodeThreads();
+        this.encodeThreads = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.encodeExecutor = Executors.newFixedThreadPool(encodeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-encode-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        encodeExecutor.shutdownNow();
+    }
 
     public Path writeSearchablePdf(List<OcrPageResult> pages, Path outputPath) {
         if (pages.isEmpty()) {
             throw new IllegalArgumentException("No OCR pages available.");
         }
 
+        try (SearchablePdfWriter writer = openWriter(outputPath)) {
+            for (OcrPageResult pageResult : pages) {
+                writer.append(pageResult);
+            }
+            return writer.finish();
+        }
+    }
+
+    public SearchablePdfWriter openWriter(Path outputPath) {
         try {
             Files.createDirectories(outputPath.getParent());
-            try (PDDocument document = new PDDocument()) {
-                PDFont font = resolveFont(document);
+            PDDocument document = new PDDocument(scratchStreamCache());
+            try {
+                return new SearchablePdfWriter(outputPath, document, resolveFont(document));
+            } catch (RuntimeException e) {
+                document.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open PDF writer: " + outputPath, e);
+        }
+    }
 
-                for (OcrPageResult pageResult : pages) {
-                    BufferedImage image = ImageIO.read(pageResult.imagePath().toFile());
-                    if (image == null) {
-                        throw new IllegalStateException("Failed to read image: " + pageResult.imagePath());
-                    }
+    private RandomAccessStreamCache.StreamCacheCreateFunction scratchStreamCache() throws IOException {
+        OcrProperties.Pdf pdf = properties.getPdf();
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(Math.max(1L, pdf.getScratchMemoryMb()) * 1024L * 1024L);
+        if (pdf.getScratchDir() != null && !pdf.getScratchDir().isBlank()) {
+            Path scratchDir = Path.of(pdf.getScratchDir());
+            Files.createDirectories(scratchDir);
+            setting = setting.setTempDir(scratchDir.toFile());
+        }
+        return setting.streamCache;
+    }
 
-                    float width = image.getWidth();
-                    float height = image.getHeight();
-                    PDPage page = new PDPage(new PDRectangle(width, height));
-                    document.addPage(page);
+    private PreparedPage preparePage(OcrPageResult pageResult, PDFont font) throws IOException {
+        byte[] bytes = Files.readAllBytes(pageResult.imagePath());
+        PageImageEncoder.EncodedImage image = PageImageEncoder.encode(bytes, properties.getPdf().isPassthroughImages())
+                .orElseThrow(() -> new IllegalStateException("Failed to read image: " + pageResult.imagePath()));
+
+        float width = image.width();
+        float height = image.height();
+        PageContent content = new PageContent();
+        content.write(OperatorName.SAVE);
+        content.write(OperatorName.CONCAT, new COSFloat(width), COSInteger.ZERO, COSInteger.ZERO, new COSFloat(height),
+                COSInteger.ZERO, COSInteger.ZERO);
+        content.write(OperatorName.DRAW_OBJECT, IMAGE_NAME);
+        content.write(OperatorName.RESTORE);
+
+        writeInvisibleTextLayer(content, pageResult.words(), pageResult.fullText(), width, height, font);
+        return new PreparedPage(pageResult.imagePath(), image, content.toFlateBytes(), content.usesFont());
+    }
 
-                    PDImageXObject pdImage = LosslessFactory.createFromImage(document, image);
-                    try (PDPageContentStream imageStream = new PDPageContentStream(document, page)) {
-                        imageStream.drawImage(pdImage, 0, 0, width, height);
-                    }
+    private void assemblePage(PDDocument document, PDFont font, PreparedPage prepared) throws IOException {
+        PDImageXObject image = prepared.image().toXObject(document);
+        PDPage page = new PDPage(new PDRectangle(prepared.image().width(), prepared.image().height()));
 
-                    writeInvisibleTextLayer(document, page, pageResult.words(), pageResult.fullText(), width, height, font);
-                }
+        PDResources resources = new PDResources();
+        resources.put(IMAGE_NAME, image);
+        if (prepared.usesFont()) {
+            resources.put(FONT_NAME, font);
+        }
+        page.setResources(resources);
 
-                document.save(outputPath.toFile());
-            }
-            return outputPath;
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to write PDF: " + outputPath, e);
+        COSStream contents = document.getDocument().createCOSStream();
+        contents.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        try (OutputStream out = contents.createRawOutputStream()) {
+            out.write(prepared.content());
         }
+        page.setContents(new PDStream(contents));
+        document.addPage(page);
     }
 
-    private void writeInvisibleTextLayer(PDDocument document, PDPage page, List<OcrWord> words, String fullText,
+    private void writeInvisibleTextLayer(PageContent content, List<OcrWord> words, String fullText,
                                          float pageWidth, float pageHeight, PDFont font) throws IOException {
         List<TextLine> lines = buildTextLines(words);
         List<String> canonicalLines = normalizeFullTextLines(fullText);
 
         if (lines.isEmpty()) {
             if (!canonicalLines.isEmpty()) {
-                writeCanonicalTextBlockFallback(document, page, canonicalLines, words, pageWidth, pageHeight, font);
+                writeCanonicalTextBlockFallback(content, canonicalLines, words, pageWidth, pageHeight, font);
                 return;
             }
-            writeFallbackText(document, page, fullText, pageHeight, font);
+            writeFallbackText(content, fullText, pageHeight, font);
             return;
         }
 
-        try (PDPageContentStream textStream = new PDPageContentStream(document, page, AppendMode.APPEND, true, true)) {
-            textStream.setRenderingMode(RenderingMode.NEITHER);
+        content.write(OperatorName.SET_TEXT_RENDERINGMODE, COSInteger.get(RenderingMode.NEITHER.intValue()));
 
-            for (TextLine line : lines) {
-                String joined = joinLineWords(line.words());
-                String safeText = filterRenderableText(font, joined);
-                if (safeText.isBlank()) {
-                    continue;
-                }
+        for (TextLine line : lines) {
+            String joined = joinLineWords(line.words());
+            String safeText = filterRenderableText(font, joined);
+            if (safeText.isBlank()) {
+                continue;
+            }
 
-                float x = clamp(line.minX(), 0f, pageWidth - 1f);
-                float yBottom = clamp(pageHeight - line.maxY(), 0f, pageHeight - 1f);
-                float fontSize = Math.max(4f, Math.min(64f, line.height()));
+            float x = clamp(line.minX(), 0f, pageWidth - 1f);
+            float yBottom = clamp(pageHeight - line.maxY(), 0f, pageHeight - 1f);
+            float fontSize = Math.max(4f, Math.min(64f, line.height()));
 
-                writeTextChunk(textStream, font, fontSize, x, yBottom, safeText);
-            }
+            writeTextChunk(content, font, fontSize, x, yBottom, safeText);
         }
     }
 
-    private void writeCanonicalTextBlockFallback(PDDocument document, PDPage page, List<String> canonicalLines, List<OcrWord> words,
+    private void writeCanonicalTextBlockFallback(PageContent content, List<String> canonicalLines, List<OcrWord> words,
                                                  float pageWidth, float pageHeight, PDFont font) throws IOException {
         float estimatedFontSize = estimateFontSize(words, pageHeight);
         float leading = Math.max(estimatedFontSize * 1.25f, 9f);
         float x = clamp(1f, 0f, pageWidth - 1f);
         float y = Math.max(10f, pageHeight - 10f);
 
-        try (PDPageContentStream textStream = new PDPageContentStream(document, page, AppendMode.APPEND, true, true)) {
-            textStream.setRenderingMode(RenderingMode.NEITHER);
-            for (String rawLine : canonicalLines) {
-                String safeText = filterRenderableText(font, rawLine);
-                if (!safeText.isBlank()) {
-                    writeTextChunk(textStream, font, estimatedFontSize, x, y, safeText);
-                }
-                y -= leading;
-                if (y < 2f) {
-                    break;
-                }
+        content.write(OperatorName.SET_TEXT_RENDERINGMODE, COSInteger.get(RenderingMode.NEITHER.intValue()));
+        for (String rawLine : canonicalLines) {
+            String safeText = filterRenderableText(font, rawLine);
+            if (!safeText.isBlank()) {
+                writeTextChunk(content, font, estimatedFontSize, x, y, safeText);
+            }
+            y -= leading;
+            if (y < 2f) {
+                break;
             }
         }
     }
@@ -266,38 +345,29 @@ public class PdfService {
         return "([{<\"'“‘".indexOf(last) >= 0;
     }
 
-    private void writeFallbackText(PDDocument document, PDPage page, String fullText,
-                                   float pageHeight, PDFont font) throws IOException {
+    private void writeFallbackText(PageContent content, String fullText, float pageHeight, PDFont font) throws IOException {
         if (fullText == null || fullText.isBlank()) {
             return;
         }
 
-        try (PDPageContentStream textStream = new PDPageContentStream(document, page, AppendMode.APPEND, true, true)) {
-            textStream.setRenderingMode(RenderingMode.NEITHER);
-            textStream.beginText();
-            textStream.setFont(font, 8f);
-            textStream.setLeading(9f);
-            textStream.newLineAtOffset(1f, Math.max(10f, pageHeight - 10f));
+        content.write(OperatorName.SET_TEXT_RENDERINGMODE, COSInteger.get(RenderingMode.NEITHER.intValue()));
+        content.write(OperatorName.BEGIN_TEXT);
+        content.writeFont(FONT_NAME, 8f);
+        content.write(OperatorName.SET_TEXT_LEADING, new COSFloat(9f));
+        content.write(OperatorName.MOVE_TEXT, new COSFloat(1f), new COSFloat(Math.max(10f, pageHeight - 10f)));
 
-            for (String rawLine : fullText.split("\\R")) {
-                String safe = filterRenderableText(font, rawLine);
-                if (safe.isBlank()) {
-                    textStream.newLine();
-                    continue;
-                }
-                try {
-                    textStream.showText(safe);
-                } catch (Exception ex) {
-                    String repaired = stripUnsupportedCharacters(font, safe);
-                    if (!repaired.isBlank()) {
-                        textStream.showText(repaired);
-                    }
+        for (String rawLine : fullText.split("\\R")) {
+            String safe = filterRenderableText(font, rawLine);
+            if (!safe.isBlank()) {
+                byte[] encoded = encodeText(font, safe);
+                if (encoded != null) {
+                    content.write(OperatorName.SHOW_TEXT, new COSString(encoded));
                 }
-                textStream.newLine();
             }
-
-            textStream.endText();
+            content.write(OperatorName.NEXT_LINE);
         }
+
+        content.write(OperatorName.END_TEXT);
     }
 
     private String filterRenderableText(PDFont font, String raw) {
@@ -307,16 +377,18 @@ public class PdfService {
 
         StringBuilder sb = new StringBuilder();
         int[] codePoints = raw.codePoints().toArray();
-        for (int cp : codePoints) {
-            if (Character.isISOControl(cp) && !Character.isWhitespace(cp)) {
-                continue;
-            }
-            if (font instanceof PDType0Font) {
-                if (Character.isWhitespace(cp) || canRender(font, cp)) {
+        synchronized (font) {
+            for (int cp : codePoints) {
+                if (Character.isISOControl(cp) && !Character.isWhitespace(cp)) {
+                    continue;
+                }
+                if (font instanceof PDType0Font) {
+                    if (Character.isWhitespace(cp) || canRender(font, cp)) {
+                        sb.appendCodePoint(cp);
+                    }
+                } else if (cp >= 32 && cp <= 126) {
                     sb.appendCodePoint(cp);
                 }
-            } else if (cp >= 32 && cp <= 126) {
-                sb.appendCodePoint(cp);
             }
         }
         return sb.toString();
@@ -331,37 +403,52 @@ public class PdfService {
         }
     }
 
-    private void writeTextChunk(PDPageContentStream stream, PDFont font, float fontSize, float x, float y, String text)
+    private void writeTextChunk(PageContent content, PDFont font, float fontSize, float x, float y, String text)
             throws IOException {
         if (text == null || text.isBlank()) {
             return;
         }
 
-        String candidate = text;
-        try {
-            stream.beginText();
-            stream.setFont(font, fontSize);
-            stream.newLineAtOffset(x, y);
-            stream.showText(candidate);
-            stream.endText();
-        } catch (Exception ex) {
+        byte[] encoded = encodeText(font, text);
+        if (encoded == null) {
             String repaired = stripUnsupportedCharacters(font, text);
             if (repaired.isBlank()) {
                 return;
             }
-            stream.beginText();
-            stream.setFont(font, fontSize);
-            stream.newLineAtOffset(x, y);
-            stream.showText(repaired);
-            stream.endText();
+            encoded = encodeText(font, repaired);
+            if (encoded == null) {
+                return;
+            }
+        }
+
+        content.write(OperatorName.BEGIN_TEXT);
+        content.writeFont(FONT_NAME, fontSize);
+        content.write(OperatorName.MOVE_TEXT, new COSFloat(x), new COSFloat(y));
+        content.write(OperatorName.SHOW_TEXT, new COSString(encoded));
+        content.write(OperatorName.END_TEXT);
+    }
+
+    private byte[] encodeText(PDFont font, String text) {
+        synchronized (font) {
+            try {
+                byte[] encoded = font.encode(text);
+                if (font.willBeSubset()) {
+                    text.codePoints().forEach(font::addToSubset);
+                }
+                return encoded;
+            } catch (Exception ignored) {
+                return null;
+            }
         }
     }
 
     private String stripUnsupportedCharacters(PDFont font, String raw) {
         StringBuilder sb = new StringBuilder();
-        for (int cp : raw.codePoints().toArray()) {
-            if (Character.isWhitespace(cp) || canRender(font, cp)) {
-                sb.appendCodePoint(cp);
+        synchronized (font) {
+            for (int cp : raw.codePoints().toArray()) {
+                if (Character.isWhitespace(cp) || canRender(font, cp)) {
+                    sb.appendCodePoint(cp);
+                }
             }
         }
         return sb.toString();
@@ -397,6 +484,128 @@ public class PdfService {
         return Math.max(min, Math.min(max, value));
     }
 
+    public final class SearchablePdfWriter implements AutoCloseable {
+        private final Path outputPath;
+        private final PDDocument document;
+        private final PDFont font;
+        private final Deque<Future<PreparedPage>> inFlight = new ArrayDeque<>();
+        private int pageCount;
+        private boolean closed;
+
+        private SearchablePdfWriter(Path outputPath, PDDocument document, PDFont font) {
+            this.outputPath = outputPath;
+            this.document = document;
+            this.font = font;
+        }
+
+        public void append(OcrPageResult pageResult) {
+            ensureOpen();
+            inFlight.addLast(encodeExecutor.submit(() -> preparePage(pageResult, font)));
+            while (inFlight.size() > encodeThreads * 2) {
+                assembleNext();
+            }
+        }
+
+        public int pageCount() {
+            return pageCount;
+        }
+
+        public Path finish() {
+            ensureOpen();
+            try {
+                while (!inFlight.isEmpty()) {
+                    assembleNext();
+                }
+                if (pageCount == 0) {
+                    throw new IllegalArgumentException("No OCR pages available.");
+                }
+                document.save(outputPath.toFile());
+                return outputPath;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write PDF: " + outputPath, e);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            inFlight.forEach(future -> future.cancel(true));
+            inFlight.clear();
+            try {
+                document.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to release PDF scratch storage: " + outputPath, e);
+            }
+        }
+
+        private void assembleNext() {
+            PreparedPage prepared;
+            try {
+                prepared = inFlight.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while encoding PDF pages: " + outputPath, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new RuntimeException("Failed to encode PDF page: " + cause.getMessage(), cause);
+            }
+
+            try {
+                assemblePage(document, font, prepared);
+                pageCount++;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to append PDF page: " + prepared.imagePath(), e);
+            }
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("PDF writer already closed: " + outputPath);
+            }
+        }
+    }
+
+    private record PreparedPage(Path imagePath, PageImageEncoder.EncodedImage image, byte[] content, boolean usesFont) {
+    }
+
+    private static final class PageContent {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final ContentStreamWriter writer = new ContentStreamWriter(buffer);
+        private boolean usesFont;
+
+        void write(String operator, COSBase... operands) throws IOException {
+            for (COSBase operand : operands) {
+                writer.writeToken(operand);
+            }
+            writer.writeToken(Operator.getOperator(operator));
+        }
+
+        void writeFont(COSName fontName, float fontSize) throws IOException {
+            usesFont = true;
+            write(OperatorName.SET_FONT_AND_SIZE, fontName, new COSFloat(fontSize));
+        }
+
+        boolean usesFont() {
+            return usesFont;
+        }
+
+        byte[] toFlateBytes() throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, buffer.size() / 2));
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                buffer.writeTo(out);
+            }
+            return compressed.toByteArray();
+        }
+    }
+
     private static class TextLine {
         private final List<OcrWord> words = new ArrayList<>();
         private float minX;
@@ -0,0 +1,214 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.UsageRecord;
+import com.kmg.ocr.repo.QuotaReservationRepository;
+import com.kmg.ocr.repo.UsageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class QuotaLedger {
+    private static final Logger log = LoggerFactory.getLogger(QuotaLedger.class);
+
+    private final UsageRepository usageRepository;
+    private final QuotaReservationRepository reservationRepository;
+    private final TimeService timeService;
+    private final OcrProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    public QuotaLedger(
+            UsageRepository usageRepository,
+            QuotaReservationRepository reservationRepository,
+            TimeService timeService,
+            OcrProperties properties,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.usageRepository = usageRepository;
+        this.reservationRepository = reservationRepository;
+        this.timeService = timeService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public int acquire(String credentialId, int units) {
+        if (units <= 0) {
+            return 0;
+        }
+        Account account = account(credentialId);
+        synchronized (account) {
+            int granted = account.take(units);
+            while (granted < units && refill(account, units - granted)) {
+                granted += account.take(units - granted);
+            }
+            if (granted > 0) {
+                // The balance is stored before units are handed out, so recovery can return exactly what is left.
+                try {
+                    persist(account);
+                } catch (RuntimeException e) {
+                    account.available.addAndGet(granted);
+                    throw e;
+                }
+            }
+            return granted;
+        }
+    }
+
+    public void release(String credentialId, int units) {
+        if (units <= 0) {
+            return;
+        }
+        Account account = account(credentialId);
+        synchronized (account) {
+            account.available.addAndGet(units);
+            try {
+                persist(account);
+            } catch (RuntimeException e) {
+                log.warn("Failed to store released quota units for {}: {}", credentialId, e.getMessage());
+            }
+        }
+    }
+
+    public int outstanding(String credentialId, String period) {
+        Account account = accounts.get(credentialId);
+        if (account == null || !account.period.equals(period)) {
+            return 0;
+        }
+        return account.available.get();
+    }
+
+    public void discard(String credentialId) {
+        Account account = accounts.remove(credentialId);
+        if (account == null) {
+            return;
+        }
+        account.available.set(0);
+        reservationRepository.delete(account.credentialId, account.period);
+    }
+
+    public void releaseUnused() {
+        for (Account account : accounts.values()) {
+            returnUnused(account);
+        }
+    }
+
+    public void recoverAfterRestart() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (QuotaReservationRepository.ReservationRow row : reservationRepository.findAll()) {
+                usageRepository.decrementUsed(row.credentialId(), row.period(), row.reservedUnits());
+                reservationRepository.delete(row.credentialId(), row.period());
+                log.info("Released {} reserved quota units for credential {} ({})",
+                        row.reservedUnits(), row.credentialId(), row.period());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            releaseUnused();
+        } catch (Exception e) {
+            log.warn("Failed to release quota reservations on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private Account account(String credentialId) {
+        String period = timeService.currentPeriod();
+        while (true) {
+            Account current = accounts.get(credentialId);
+            if (current != null && current.period.equals(period)) {
+                return current;
+            }
+            Account created = new Account(credentialId, period);
+            boolean installed = current == null
+                    ? accounts.putIfAbsent(credentialId, created) == null
+                    : accounts.replace(credentialId, current, created);
+            if (installed) {
+                if (current != null) {
+                    returnUnused(current);
+                }
+                return created;
+            }
+        }
+    }
+
+    private boolean refill(Account account, int needed) {
+        synchronized (account) {
+            if (account.available.get() > 0) {
+                return true;
+            }
+            int block = Math.max(needed, properties.getQuota().getReservationBlock());
+            Integer granted = transactionTemplate.execute(status -> {
+                int cap = properties.getCredentials().getMonthlyCap();
+                UsageRecord usage = usageRepository.ensureRow(account.credentialId, account.period, cap);
+                int grant = Math.min(block, Math.max(0, usage.capUnits() - usage.usedUnits()));
+                if (grant <= 0) {
+                    return 0;
+                }
+                usageRepository.incrementUsed(account.credentialId, account.period, cap, grant);
+                reservationRepository.save(account.credentialId, account.period, account.available.get() + grant);
+                return grant;
+            });
+            if (granted == null || granted <= 0) {
+                return false;
+            }
+            account.persisted = account.available.addAndGet(granted);
+            return true;
+        }
+    }
+
+    private void returnUnused(Account account) {
+        synchronized (account) {
+            int unused = account.available.getAndSet(0);
+            transactionTemplate.executeWithoutResult(status -> {
+                if (unused > 0) {
+                    usageRepository.decrementUsed(account.credentialId, account.period, unused);
+                }
+                reservationRepository.delete(account.credentialId, account.period);
+            });
+            account.persisted = 0;
+        }
+    }
+
+    private void persist(Account account) {
+        int available = account.available.get();
+        if (available != account.persisted) {
+            reservationRepository.save(account.credentialId, account.period, available);
+            account.persisted = available;
+        }
+    }
+
+    private static final class Account {
+        private final String credentialId;
+        private final String period;
+        private final AtomicInteger available = new AtomicInteger();
+        private int persisted;
+
+        private Account(String credentialId, String period) {
+            this.credentialId = credentialId;
+            this.period = period;
+        }
+
+        private int take(int units) {
+            while (true) {
+                int current = available.get();
+                int taken = Math.min(current, units);
+                if (taken == 0) {
+                    return 0;
+                }
+                if (available.compareAndSet(current, current - taken)) {
+                    return taken;
+                }
+            }
+        }
+    }
+}
@@ -21,17 +21,20 @@ public class QuotaService {
     private final CredentialRepository credentialRepository;
     private final UsageRepository usageRepository;
     private final TimeService timeService;
+    private final QuotaLedger quotaLedger;
     private final OcrProperties properties;
 
     public QuotaService(
             CredentialRepository credentialRepository,
             UsageRepository usageRepository,
             TimeService timeService,
+            QuotaLedger quotaLedger,
             OcrProperties properties
     ) {
         this.credentialRepository = credentialRepository;
         this.usageRepository = usageRepository;
         this.timeService = timeService;
+        this.quotaLedger = quotaLedger;
         this.properties = properties;
     }
 
@@ -53,7 +56,8 @@ public class QuotaService {
                     id -> usageRepository.ensureRow(id, period, cap)
             );
 
-            int remaining = Math.max(0, usage.capUnits() - usage.usedUnits());
+            int used = Math.max(0, usage.usedUnits() - quotaLedger.outstanding(credential.id(), period));
+            int remaining = Math.max(0, usage.capUnits() - used);
             String status = credential.active() && Files.exists(Path.of(credential.filePath())) ? "ACTIVE" : "MISSING";
 
             result.add(new CredentialSummary(
@@ -64,7 +68,7 @@ public class QuotaService {
                     credential.projectId(),
                     credential.serviceAccountEmail(),
                     usage.capUnits(),
-                    usage.usedUnits(),
+                    used,
                     remaining,
                     period,
                     resetAt,
@@ -80,6 +84,7 @@ public class QuotaService {
 
     @Transactional
     public CredentialSummary adjustUsage(String credentialId, int newUsed, String reason) {
+        quotaLedger.discard(credentialId);
         String period = timeService.currentPeriod();
         int cap = properties.getCredentials().getMonthlyCap();
         UsageRecord old = usageRepository.ensureRow(credentialId, period, cap);
@@ -88,26 +93,21 @@ public class QuotaService {
         return findSummaryById(credentialId).orElseThrow(() -> new IllegalArgumentException("Credential not found"));
     }
 
-    @Transactional
-    public int consumeOneUnit(String credentialId) {
-        String period = timeService.currentPeriod();
-        int cap = properties.getCredentials().getMonthlyCap();
-        UsageRecord updated = usageRepository.incrementUsed(credentialId, period, cap, 1);
-        return Math.max(0, updated.capUnits() - updated.usedUnits());
+    public int consumeUnits(String credentialId, int units) {
+        return quotaLedger.acquire(credentialId, units);
     }
 
-    @Transactional
-    public int releaseOneUnit(String credentialId) {
-        String period = timeService.currentPeriod();
-        int cap = properties.getCredentials().getMonthlyCap();
-        UsageRecord current = usageRepository.ensureRow(credentialId, period, cap);
-        int nextUsed = Math.max(0, current.usedUnits() - 1);
-        UsageRecord updated = usageRepository.setUsed(credentialId, period, cap, nextUsed);
-        return Math.max(0, updated.capUnits() - updated.usedUnits());
+    public void releaseUnits(String credentialId, int units) {
+        quotaLedger.release(credentialId, units);
+    }
+
+    public void releaseReservations() {
+        quotaLedger.releaseUnused();
     }
 
     @Transactional
     public void markExhausted(String credentialId, String reason) {
+        quotaLedger.discard(credentialId);
         String period = timeService.currentPeriod();
         int cap = properties.getCredentials().getMonthlyCap();
         UsageRecord existing = usageRepository.ensureRow(credentialId, period, cap);
@@ -0,0 +1,47 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+public class VisionRetryPolicy {
+    private final OcrProperties properties;
+    private double budgetTokens;
+
+    public VisionRetryPolicy(OcrProperties properties) {
+        this.properties = properties;
+        this.budgetTokens = properties.getRetry().getBudgetMinTokens();
+    }
+
+    public boolean isRetryable(RuntimeException error) {
+        return error instanceof OcrService.OcrTransientException;
+    }
+
+    public boolean canRetry(int attempt) {
+        return attempt < properties.getRetry().getMaxAttempts();
+    }
+
+    public long backoffMillis(int attempt) {
+        OcrProperties.Retry retry = properties.getRetry();
+        double exponential = retry.getInitialBackoffMs() * Math.pow(Math.max(1.0, retry.getMultiplier()), Math.max(0, attempt - 1));
+        long capped = (long) Math.min(retry.getMaxBackoffMs(), exponential);
+        long half = Math.max(1, capped / 2);
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    public synchronized void recordRequests(int pages) {
+        OcrProperties.Retry retry = properties.getRetry();
+        double cap = Math.max(retry.getBudgetMinTokens(), retry.getBudgetMaxTokens());
+        budgetTokens = Math.min(cap, budgetTokens + pages * retry.getBudgetRatio());
+    }
+
+    public synchronized boolean tryAcquireRetry(int pages) {
+        if (budgetTokens < pages) {
+            return false;
+        }
+        budgetTokens -= pages;
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+package com.kmg.ocr.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SchemaMigratorTest {
+    private static final List<String> TABLES = List.of(
+            "credentials", "usage_monthly", "usage_audit", "quota_reservations", "jobs", "job_items",
+            "ocr_page_checkpoints", "ocr_result_cache", "folder_manifest_pages", "hot_folder_files", "hot_folder_buffer"
+    );
+
+    private static final List<String> BASELINE_SCHEMA = List.of(
+            """
+            CREATE TABLE credentials (
+              id TEXT PRIMARY KEY,
+              fingerprint TEXT UNIQUE NOT NULL,
+              file_path TEXT NOT NULL,
+              file_name TEXT NOT NULL,
+              account_label TEXT,
+              project_id TEXT,
+              service_account_email TEXT,
+              private_key_id TEXT,
+              is_active INTEGER NOT NULL DEFAULT 1,
+              created_at TEXT NOT NULL,
+              updated_at TEXT NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE usage_monthly (
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              cap_units INTEGER NOT NULL,
+              used_units INTEGER NOT NULL,
+              adjusted_units INTEGER NOT NULL DEFAULT 0,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (credential_id, period_pt),
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE usage_audit (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              credential_id TEXT NOT NULL,
+              period_pt TEXT NOT NULL,
+              old_used_units INTEGER NOT NULL,
+              new_used_units INTEGER NOT NULL,
+              reason TEXT NOT NULL,
+              created_at TEXT NOT NULL,
+              FOREIGN KEY (credential_id) REFERENCES credentials(id)
+            )
+            """,
+            """
+            CREATE TABLE jobs (
+              id TEXT PRIMARY KEY,
+              strategy TEXT NOT NULL,
+              status TEXT NOT NULL,
+              created_at TEXT NOT NULL,
+              started_at TEXT,
+              ended_at TEXT,
+              stop_reason TEXT,
+              total_items INTEGER NOT NULL,
+              processed_items INTEGER NOT NULL DEFAULT 0,
+              current_credential_id TEXT,
+              last_error TEXT
+            )
+            """,
+            """
+            CREATE TABLE job_items (
+              id TEXT PRIMARY KEY,
+              job_id TEXT NOT NULL,
+              queue_index INTEGER NOT NULL,
+              folder_path TEXT NOT NULL,
+              image_total INTEGER NOT NULL,
+              image_done INTEGER NOT NULL DEFAULT 0,
+              status TEXT NOT NULL,
+              pdf_path TEXT,
+              error_reason TEXT,
+              created_at TEXT NOT NULL,
+              started_at TEXT,
+              ended_at TEXT,
+              FOREIGN KEY (job_id) REFERENCES jobs(id)
+            )
+            """,
+            """
+            CREATE TABLE ocr_page_checkpoints (
+              job_item_id TEXT NOT NULL,
+              page_index INTEGER NOT NULL,
+              image_path TEXT NOT NULL,
+              full_text TEXT,
+              words_json TEXT NOT NULL,
+              updated_at TEXT NOT NULL,
+              PRIMARY KEY (job_item_id, page_index),
+              FOREIGN KEY (job_item_id) REFERENCES job_items(id)
+            )
+            """
+    );
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate legacy;
+    private JdbcTemplate fresh;
+
+    @BeforeEach
+    void setUp() {
+        legacy = jdbc("legacy.db");
+        fresh = jdbc("fresh.db");
+    }
+
+    @Test
+    void freshDatabaseIsCreatedInFinalSchema() {
+        int version = new SchemaMigrator(fresh).migrate();
+
+        assertEquals(latestVersion(), version);
+        assertEquals("INTEGER", columnType(fresh, "jobs", "created_at"));
+        assertEquals("INTEGER", columnType(fresh, "ocr_result_cache", "created_at"));
+        assertEquals(0, fresh.queryForObject(
+                "SELECT COUNT(*) FROM sqlite_master WHERE name LIKE '%\\_v_' ESCAPE '\\'", Integer.class));
+    }
+
+    @Test
+    void baselineDatabaseMigratesRowsAndTimestamps() {
+        BASELINE_SCHEMA.forEach(legacy::execute);
+        legacy.update("INSERT INTO credentials VALUES ('c1', 'fp', '/k.json', 'k.json', null, null, null, null, 1, "
+                + "'2024-01-01T00:00:00Z', '2024-01-01T00:00:00Z')");
+        legacy.update("INSERT INTO jobs(id, strategy, status, created_at, started_at, ended_at, total_items) VALUES "
+                + "('j1', 'MAX_REMAINING', 'COMPLETED', '2024-03-01T10:15:30.123456Z', '2024-03-01T10:16:00Z', "
+                + "'2024-03-01T11:00:00.5Z', 2), ('j2', 'ROUND_ROBIN', 'CREATED', '2024-03-02T00:00:00Z', null, null, 1)");
+        legacy.update("INSERT INTO job_items(id, job_id, queue_index, folder_path, image_total, status, created_at) VALUES "
+                + "('i1', 'j1', 0, '/a', 3, 'COMPLETED', '2024-03-01T10:15:30.123Z'), "
+                + "('i2', 'j1', 1, '/b', 4, 'COMPLETED', '2024-03-01T10:15:30.123Z'), "
+                + "('i3', 'j2', 0, '/c', 5, 'PENDING', '2024-03-02T00:00:00Z')");
+        legacy.update("INSERT INTO usage_audit(credential_id, period_pt, old_used_units, new_used_units, reason, created_at) "
+                + "VALUES ('c1', '2024-03', 0, 10, 'manual', '2024-03-05T08:00:00+09:00')");
+
+        int version = new SchemaMigrator(legacy).migrate();
+
+        assertEquals(latestVersion(), version);
+        assertEquals(2, legacy.queryForObject("SELECT COUNT(*) FROM jobs", Integer.class));
+        assertEquals(3, legacy.queryForObject("SELECT COUNT(*) FROM job_items", Integer.class));
+        assertEquals(1, legacy.queryForObject("SELECT COUNT(*) FROM usage_audit", Integer.class));
+
+        Map<String, Object> job = legacy.queryForMap("SELECT * FROM jobs WHERE id = 'j1'");
+        assertEquals(millis("2024-03-01T10:15:30.123Z"), ((Number) job.get("created_at")).longValue());
+        assertEquals(millis("2024-03-01T10:16:00Z"), ((Number) job.get("started_at")).longValue());
+        assertEquals(millis("2024-03-01T11:00:00.500Z"), ((Number) job.get("ended_at")).longValue());
+        assertEquals(2, ((Number) job.get("parallelism")).intValue());
+        assertEquals(0, ((Number) job.get("incremental")).intValue());
+        assertNull(legacy.queryForMap("SELECT * FROM jobs WHERE id = 'j2'").get("started_at"));
+        assertEquals(millis("2024-03-02T00:00:00Z"),
+                legacy.queryForObject("SELECT created_at FROM job_items WHERE id = 'i3'", Long.class));
+        assertEquals(millis("2024-03-04T23:00:00Z"),
+                legacy.queryForObject("SELECT created_at FROM usage_audit", Long.class));
+    }
+
+    @Test
+    void migratedBaselineMatchesFreshSchema() {
+        BASELINE_SCHEMA.forEach(legacy::execute);
+        new SchemaMigrator(legacy).migrate();
+        new SchemaMigrator(fresh).migrate();
+
+        for (String table : TABLES) {
+            assertEquals(columns(fresh, table), columns(legacy, table), table);
+        }
+    }
+
+    @Test
+    void migrateIsIdempotent() {
+        SchemaMigrator migrator = new SchemaMigrator(fresh);
+        int first = migrator.migrate();
+        fresh.update("INSERT INTO jobs(id, strategy, status, created_at, total_items) VALUES ('j', 'MAX_REMAINING', 'CREATED', 1, 1)");
+
+        assertEquals(first, migrator.migrate());
+        assertEquals(1, fresh.queryForObject("SELECT COUNT(*) FROM jobs", Integer.class));
+    }
+
+    private JdbcTemplate jdbc(String name) {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve(name));
+        return new JdbcTemplate(dataSource);
+    }
+
+    private int latestVersion() {
+        JdbcTemplate scratch = jdbc("latest.db");
+        return new SchemaMigrator(scratch).migrate();
+    }
+
+    private static String columnType(JdbcTemplate jdbc, String table, String column) {
+        return jdbc.queryForObject("SELECT type FROM pragma_table_info(?) WHERE name = ?", String.class, table, column);
+    }
+
+    private static List<String> columns(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForList(
+                "SELECT name || ':' || type || ':' || \"notnull\" || ':' || pk FROM pragma_table_info(?) ORDER BY name",
+                String.class,
+                table
+        );
+    }
+
+    private static long millis(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+}
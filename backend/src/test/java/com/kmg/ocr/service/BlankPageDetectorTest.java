@@ -0,0 +1,175 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlankPageDetectorTest {
+    private static final int WIDTH = 1240;
+    private static final int HEIGHT = 1754;
+    private static final int LARGE_WIDTH = 4200;
+    private static final int LARGE_HEIGHT = 6000;
+
+    @TempDir
+    Path tempDir;
+
+    private OcrProperties properties;
+    private BlankPageDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OcrProperties();
+        properties.getBlankPage().setEnabled(true);
+        detector = new BlankPageDetector(properties);
+    }
+
+    @Test
+    void disabledByDefault() throws IOException {
+        Path page = page("blank", new Color(245, 245, 240), 20, graphics -> {
+        });
+        assertFalse(new BlankPageDetector(new OcrProperties()).isBlank(page));
+    }
+
+    @Test
+    void noisyPaperIsBlank() throws IOException {
+        assertTrue(detector.isBlank(page("paper", new Color(245, 245, 240), 20, graphics -> {
+        })));
+    }
+
+    @Test
+    void darkCoverIsBlank() throws IOException {
+        assertTrue(detector.isBlank(page("cover", new Color(40, 40, 60), 10, graphics -> {
+        })));
+    }
+
+    @Test
+    void scannerEdgeShadowInsideMarginIsIgnored() throws IOException {
+        assertTrue(detector.isBlank(page("shadow", new Color(245, 245, 240), 20,
+                graphics -> graphics.fillRect(0, 0, 20, HEIGHT))));
+    }
+
+    @Test
+    void lonePageNumberIsNotBlank() throws IOException {
+        assertFalse(detector.isBlank(page("page-number", Color.WHITE, 0, graphics -> {
+            graphics.fillRect(610, 1650, 2, 24);
+            graphics.fillRect(620, 1650, 12, 2);
+            graphics.fillRect(630, 1650, 2, 24);
+        })));
+    }
+
+    @Test
+    void singleThinLineIsNotBlank() throws IOException {
+        assertFalse(detector.isBlank(page("line", Color.WHITE, 0, graphics -> {
+            for (int x = 200; x < 900; x += 9) {
+                graphics.fillRect(x, 300, 1, 14);
+            }
+        })));
+    }
+
+    @Test
+    void textPageIsNotBlank() throws IOException {
+        assertFalse(detector.isBlank(page("text", Color.WHITE, 0, graphics -> {
+            for (int y = 150; y < 1600; y += 30) {
+                for (int x = 100; x < 1140; x += 7) {
+                    graphics.fillRect(x, y, 2, 14);
+                }
+            }
+        })));
+    }
+
+    @Test
+    void largePageIsDecodedAtReducedSize() throws IOException {
+        Path page = largePage("large-text", graphics -> {
+            for (int y = 600; y < 5600; y += 120) {
+                for (int x = 400; x < 3800; x += 28) {
+                    graphics.fillRect(x, y, 8, 56);
+                }
+            }
+        });
+
+        BlankPageDetector.Sample sample = BlankPageDetector.decode(page, 2048);
+        assertEquals(3, sample.stride());
+        assertEquals(LARGE_WIDTH / 3, sample.page().getWidth());
+        assertEquals(LARGE_HEIGHT / 3, sample.page().getHeight());
+        assertFalse(detector.isBlank(page));
+    }
+
+    @Test
+    void largeBlankPageIsBlank() throws IOException {
+        assertTrue(detector.isBlank(largePage("large-blank", graphics -> {
+        })));
+    }
+
+    @Test
+    void strokesThinnerThanTheSampleStrideAreNotBlank() throws IOException {
+        Path page = largePage("large-line", graphics -> {
+            for (int x = 1000; x < 3000; x += 30) {
+                graphics.fillRect(x + 1, 1200, 1, 60);
+            }
+        });
+
+        BufferedImage sample = BlankPageDetector.decode(page, 2048).page();
+        for (int y = 0; y < sample.getHeight(); y++) {
+            for (int x = 0; x < sample.getWidth(); x++) {
+                assertEquals(0xFFFFFFFF, sample.getRGB(x, y));
+            }
+        }
+        assertFalse(detector.isBlank(page));
+    }
+
+    @Test
+    void unreadableFileIsNotBlank() {
+        assertFalse(detector.isBlank(tempDir.resolve("missing.png")));
+    }
+
+    private Path largePage(String name, Consumer<Graphics2D> draw) throws IOException {
+        BufferedImage image = new BufferedImage(LARGE_WIDTH, LARGE_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, LARGE_WIDTH, LARGE_HEIGHT);
+            graphics.setColor(Color.BLACK);
+            draw.accept(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        Path path = tempDir.resolve(name + ".png");
+        ImageIO.write(image, "png", path.toFile());
+        return path;
+    }
+
+    private Path page(String name, Color background, int noise, Consumer<Graphics2D> draw) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(background);
+            graphics.fillRect(0, 0, WIDTH, HEIGHT);
+            Random random = new Random(7);
+            for (int i = 0; noise > 0 && i < 50000; i++) {
+                int level = Math.max(0, background.getRed() - random.nextInt(noise));
+                image.setRGB(random.nextInt(WIDTH), random.nextInt(HEIGHT), new Color(level, level, level).getRGB());
+            }
+            graphics.setColor(Color.BLACK);
+            draw.accept(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        Path path = tempDir.resolve(name + ".png");
+        ImageIO.write(image, "png", path.toFile());
+        return path;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kmg.ocr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.config.SchemaMigrator;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import com.kmg.ocr.repo.JobRepository;
+import com.kmg.ocr.repo.OcrCheckpointRepository;
+import com.kmg.ocr.repo.SqliteReadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private CheckpointWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("app.db"));
+        dataSource.setEnforceForeignKeys(true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new SchemaMigrator(jdbcTemplate).migrate();
+        jdbcTemplate.update("""
+                INSERT INTO jobs(id, strategy, status, created_at, total_items)
+                VALUES ('job', 'MAX_REMAINING', 'RUNNING', 0, 3)
+                """);
+        insertItem("ok");
+
+        OcrProperties properties = new OcrProperties();
+        properties.getReadPool().setEnabled(false);
+        properties.getCheckpoint().setJournalEnabled(false);
+        properties.getCheckpoint().setFlushIntervalMs(50);
+        SqliteReadPool readPool = new SqliteReadPool(new DataSourceProperties(), jdbcTemplate, properties);
+        writer = new CheckpointWriter(
+                new OcrCheckpointRepository(jdbcTemplate, readPool),
+                new JobRepository(jdbcTemplate, readPool),
+                new PageJournal(properties),
+                properties,
+                new ObjectMapper(),
+                new DataSourceTransactionManager(dataSource)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void failedItemDoesNotFailOtherItems() {
+        writer.record("ok", 0, page(0), 1);
+        writer.record("missing", 0, page(0), 1);
+        writer.flush();
+
+        assertDoesNotThrow(() -> writer.flush("ok"));
+        assertThrows(RuntimeException.class, () -> writer.flush("missing"));
+        assertThrows(RuntimeException.class, () -> writer.record("missing", 1, page(1), 2));
+
+        writer.record("ok", 1, page(1), 2);
+        writer.flush("ok");
+        assertEquals(2, checkpoints("ok"));
+        assertEquals(2, imageDone("ok"));
+    }
+
+    @Test
+    void failureClearsOnceTheRetriedWriteSucceeds() {
+        writer.record("late", 0, page(0), 1);
+        writer.flush();
+        assertThrows(RuntimeException.class, () -> writer.flush("late"));
+
+        insertItem("late");
+        writer.record("ok", 0, page(0), 1);
+        writer.flush();
+
+        assertDoesNotThrow(() -> writer.flush("late"));
+        assertEquals(1, checkpoints("late"));
+        assertEquals(1, imageDone("late"));
+    }
+
+    private void insertItem(String id) {
+        jdbcTemplate.update("""
+                INSERT INTO job_items(id, job_id, queue_index, folder_path, image_total, status, created_at)
+                VALUES (?, 'job', 0, ?, 10, 'RUNNING', 0)
+                """, id, "/folders/" + id);
+    }
+
+    private int checkpoints(String itemId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ocr_page_checkpoints WHERE job_item_id = ?", Integer.class, itemId);
+    }
+
+    private int imageDone(String itemId) {
+        return jdbcTemplate.queryForObject("SELECT image_done FROM job_items WHERE id = ?", Integer.class, itemId);
+    }
+
+    private static OcrPageResult page(int index) {
+        return new OcrPageResult(Path.of("/folders/page-" + index + ".png"), "page " + index,
+                List.of(new OcrWord("page", 1, 2, 30, 12)));
+    }
+}
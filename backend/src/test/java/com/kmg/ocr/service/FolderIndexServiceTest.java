@@ -0,0 +1,78 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FolderIndexServiceTest {
+    @TempDir
+    Path folder;
+
+    private FolderIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        OcrProperties properties = new OcrProperties();
+        properties.getFolderIndex().setWatchEnabled(true);
+        service = new FolderIndexService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void seesFilesCopiedRightAfterAScan() throws IOException {
+        Files.createFile(folder.resolve("page2.png"));
+        assertEquals(List.of("page2.png"), names());
+
+        Files.createFile(folder.resolve("page10.png"));
+        Files.createFile(folder.resolve("page1.jpg"));
+        assertEquals(List.of("page1.jpg", "page2.png", "page10.png"), names());
+
+        Files.delete(folder.resolve("page2.png"));
+        assertEquals(List.of("page1.jpg", "page10.png"), names());
+    }
+
+    @Test
+    void seesChangesWithoutWaitingForWatchEvents() throws IOException {
+        Path nested = Files.createDirectories(folder.resolve("chapter"));
+        Files.createFile(nested.resolve("a.png"));
+        agePast(folder);
+        agePast(nested);
+        assertEquals(List.of("a.png"), names());
+
+        Files.createFile(nested.resolve("b.png"));
+        assertEquals(List.of("a.png", "b.png"), names());
+    }
+
+    @Test
+    void reusesIndexWhenNothingChanged() throws IOException {
+        Files.createFile(folder.resolve("a.png"));
+        agePast(folder);
+
+        long scannedAt = service.index(folder).scannedAtMillis();
+        assertEquals(scannedAt, service.index(folder).scannedAtMillis());
+    }
+
+    private List<String> names() {
+        return service.index(folder).images().stream()
+                .map(image -> image.path().getFileName().toString())
+                .toList();
+    }
+
+    private static void agePast(Path directory) throws IOException {
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+    }
+}
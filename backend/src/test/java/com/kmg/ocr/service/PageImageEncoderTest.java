@@ -0,0 +1,271 @@
+package com.kmg.ocr.service;
+
+import org.apache.pdfbox.cos.COSName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageImageEncoderTest {
+    private static final byte[] IDAT = {0x78, (byte) 0x9C, 0x63, 0x60, 0x00, 0x00, 0x00, 0x02, 0x00, 0x01};
+
+    static Stream<Arguments> jpegCases() {
+        byte[] baseline = jpeg(app0(), sof(0xC0, 8, 30, 40, 3), sos());
+        return Stream.of(
+                Arguments.of("baseline rgb", baseline, 40, 30, 3),
+                Arguments.of("baseline gray", jpeg(sof(0xC0, 8, 30, 40, 1), sos()), 40, 30, 1),
+                Arguments.of("extended sequential", jpeg(sof(0xC1, 8, 30, 40, 3), sos()), 40, 30, 3),
+                Arguments.of("progressive", jpeg(app0(), sof(0xC2, 8, 30, 40, 3), sos()), 40, 30, 3),
+                Arguments.of("fill bytes before marker", jpeg(fill(app0()), fill(sof(0xC0, 8, 30, 40, 3)), sos()), 40, 30, 3),
+                Arguments.of("lossless", jpeg(sof(0xC3, 8, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("arithmetic sequential", jpeg(sof(0xC9, 8, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("arithmetic progressive", jpeg(sof(0xCA, 8, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("arithmetic lossless", jpeg(sof(0xCB, 8, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("hierarchical", jpeg(sof(0xC5, 8, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("12-bit precision", jpeg(sof(0xC1, 12, 30, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("cmyk", jpeg(sof(0xC0, 8, 30, 40, 4), sos()), -1, -1, -1),
+                Arguments.of("zero height", jpeg(sof(0xC0, 8, 0, 40, 3), sos()), -1, -1, -1),
+                Arguments.of("scan before frame", jpeg(app0(), sos(), sof(0xC0, 8, 30, 40, 3)), -1, -1, -1),
+                Arguments.of("no frame header", jpeg(app0(), eoi()), -1, -1, -1),
+                Arguments.of("truncated frame header", Arrays.copyOf(baseline, 2 + app0().length + 6), -1, -1, -1),
+                Arguments.of("truncated segment length", Arrays.copyOf(baseline, 2 + 4 + 3), -1, -1, -1),
+                Arguments.of("garbage after soi", jpeg(new byte[]{0x12, 0x34, 0x56, 0x78}, sof(0xC0, 8, 30, 40, 3)), -1, -1, -1)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("jpegCases")
+    void jpegPassthrough(String name, byte[] bytes, int width, int height, int components) {
+        Optional<PageImageEncoder.EncodedImage> encoded = PageImageEncoder.passthrough(bytes);
+        if (width < 0) {
+            assertTrue(encoded.isEmpty(), name);
+            return;
+        }
+        PageImageEncoder.EncodedImage image = encoded.orElseThrow();
+        assertSame(bytes, image.data());
+        assertEquals(COSName.DCT_DECODE, image.filter());
+        assertEquals(width, image.width());
+        assertEquals(height, image.height());
+        assertEquals(8, image.bitsPerComponent());
+        assertEquals(components, image.components());
+        assertFalse(image.pngPredictor());
+    }
+
+    static Stream<Arguments> pngCases() {
+        byte[] rgb8 = png(ihdr(20, 10, 8, 2, 0), chunk("IDAT", IDAT), iend());
+        return Stream.of(
+                Arguments.of("rgb 8-bit", rgb8, 8, 3),
+                Arguments.of("rgb 16-bit", png(ihdr(20, 10, 16, 2, 0), chunk("IDAT", IDAT), iend()), 16, 3),
+                Arguments.of("gray 1-bit", png(ihdr(20, 10, 1, 0, 0), chunk("IDAT", IDAT), iend()), 1, 1),
+                Arguments.of("gray 16-bit", png(ihdr(20, 10, 16, 0, 0), chunk("IDAT", IDAT), iend()), 16, 1),
+                Arguments.of("ancillary chunks", png(ihdr(20, 10, 8, 0, 0), chunk("gAMA", new byte[4]), chunk("IDAT", IDAT),
+                        chunk("tEXt", "a\0b".getBytes(StandardCharsets.ISO_8859_1)), iend()), 8, 1),
+                Arguments.of("palette", png(ihdr(20, 10, 8, 3, 0), chunk("PLTE", new byte[6]), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("gray with alpha", png(ihdr(20, 10, 8, 4, 0), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("rgba", png(ihdr(20, 10, 8, 6, 0), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("rgb 4-bit", png(ihdr(20, 10, 4, 2, 0), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("gray tRNS", png(ihdr(20, 10, 8, 0, 0), chunk("tRNS", new byte[2]), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("rgb tRNS", png(ihdr(20, 10, 8, 2, 0), chunk("tRNS", new byte[6]), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("interlaced", png(ihdr(20, 10, 8, 2, 1), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("zero width", png(ihdr(0, 10, 8, 2, 0), chunk("IDAT", IDAT), iend()), -1, -1),
+                Arguments.of("no image data", png(ihdr(20, 10, 8, 2, 0), iend()), -1, -1),
+                Arguments.of("first chunk not IHDR", png(chunk("IDAT", IDAT), ihdr(20, 10, 8, 2, 0), iend()), -1, -1),
+                Arguments.of("truncated IHDR", Arrays.copyOf(rgb8, 8 + 8 + 10), -1, -1),
+                Arguments.of("truncated IDAT", Arrays.copyOf(rgb8, 8 + 25 + 8 + 4), -1, -1)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("pngCases")
+    void pngPassthrough(String name, byte[] bytes, int bitDepth, int components) {
+        Optional<PageImageEncoder.EncodedImage> encoded = PageImageEncoder.passthrough(bytes);
+        if (bitDepth < 0) {
+            assertTrue(encoded.isEmpty(), name);
+            return;
+        }
+        PageImageEncoder.EncodedImage image = encoded.orElseThrow();
+        assertArrayEquals(IDAT, image.data());
+        assertEquals(COSName.FLATE_DECODE, image.filter());
+        assertEquals(20, image.width());
+        assertEquals(10, image.height());
+        assertEquals(bitDepth, image.bitsPerComponent());
+        assertEquals(components, image.components());
+        assertTrue(image.pngPredictor());
+    }
+
+    @Test
+    void pngJoinsSplitImageData() {
+        byte[] first = Arrays.copyOf(IDAT, 4);
+        byte[] second = Arrays.copyOfRange(IDAT, 4, IDAT.length);
+        byte[] bytes = png(ihdr(20, 10, 8, 2, 0), chunk("IDAT", first), chunk("IDAT", second), iend());
+
+        assertArrayEquals(IDAT, PageImageEncoder.passthrough(bytes).orElseThrow().data());
+    }
+
+    @Test
+    void unknownFormatIsNotPassedThrough() {
+        assertTrue(PageImageEncoder.passthrough("GIF89a....".getBytes(StandardCharsets.US_ASCII)).isEmpty());
+        assertTrue(PageImageEncoder.passthrough(new byte[]{(byte) 0xFF, (byte) 0xD8}).isEmpty());
+        assertTrue(PageImageEncoder.passthrough(new byte[0]).isEmpty());
+    }
+
+    @Test
+    void rejectedPaletteFallsBackToReencode() throws IOException {
+        byte[] palette = write(new BufferedImage(12, 7, BufferedImage.TYPE_BYTE_INDEXED), "png");
+        assertTrue(PageImageEncoder.passthrough(palette).isEmpty());
+
+        PageImageEncoder.EncodedImage image = PageImageEncoder.encode(palette, true).orElseThrow();
+        assertEquals(COSName.FLATE_DECODE, image.filter());
+        assertEquals(12, image.width());
+        assertEquals(7, image.height());
+        assertEquals(3, image.components());
+        assertNull(image.softMask());
+    }
+
+    @Test
+    void alphaIsSplitIntoSoftMask() throws IOException {
+        BufferedImage argb = new BufferedImage(12, 7, BufferedImage.TYPE_INT_ARGB);
+        argb.setRGB(3, 3, 0x80FF0000);
+        byte[] bytes = write(argb, "png");
+
+        PageImageEncoder.EncodedImage image = PageImageEncoder.encode(bytes, true).orElseThrow();
+        assertEquals(3, image.components());
+        assertNotNull(image.softMask());
+        assertEquals(1, image.softMask().components());
+        assertEquals(12, image.softMask().width());
+    }
+
+    @Test
+    void realBaselineJpegPassesThroughUnchanged() throws IOException {
+        byte[] bytes = write(new BufferedImage(16, 9, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        PageImageEncoder.EncodedImage image = PageImageEncoder.encode(bytes, true).orElseThrow();
+        assertSame(bytes, image.data());
+        assertEquals(16, image.width());
+        assertEquals(9, image.height());
+    }
+
+    @Test
+    void passthroughDisabledAlwaysReencodes() throws IOException {
+        byte[] bytes = write(new BufferedImage(16, 9, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        PageImageEncoder.EncodedImage image = PageImageEncoder.encode(bytes, false).orElseThrow();
+        assertEquals(COSName.FLATE_DECODE, image.filter());
+    }
+
+    @Test
+    void undecodableInputIsRejected() throws IOException {
+        byte[] truncated = Arrays.copyOf(write(new BufferedImage(16, 9, BufferedImage.TYPE_BYTE_INDEXED), "png"), 20);
+
+        assertThrows(IOException.class, () -> PageImageEncoder.encode(truncated, true));
+        assertTrue(PageImageEncoder.encode(new byte[]{1, 2, 3}, true).isEmpty());
+    }
+
+    private static byte[] write(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out));
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(byte[]... segments) {
+        return concat(new byte[]{(byte) 0xFF, (byte) 0xD8}, concat(segments));
+    }
+
+    private static byte[] segment(int marker, byte[] payload) {
+        return ByteBuffer.allocate(4 + payload.length)
+                .put((byte) 0xFF)
+                .put((byte) marker)
+                .putShort((short) (payload.length + 2))
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] app0() {
+        return segment(0xE0, "JFIF\0\1\1\0\0\1\0\1\0\0".getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] sof(int marker, int precision, int height, int width, int components) {
+        ByteBuffer payload = ByteBuffer.allocate(6 + components * 3)
+                .put((byte) precision)
+                .putShort((short) height)
+                .putShort((short) width)
+                .put((byte) components);
+        for (int i = 1; i <= components; i++) {
+            payload.put((byte) i).put((byte) 0x11).put((byte) 0);
+        }
+        return segment(marker, payload.array());
+    }
+
+    private static byte[] sos() {
+        return segment(0xDA, new byte[]{1, 1, 0, 0, 0x3F, 0});
+    }
+
+    private static byte[] eoi() {
+        return new byte[]{(byte) 0xFF, (byte) 0xD9};
+    }
+
+    private static byte[] fill(byte[] segment) {
+        return concat(new byte[]{(byte) 0xFF, (byte) 0xFF}, segment);
+    }
+
+    private static byte[] png(byte[]... chunks) {
+        return concat(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, concat(chunks));
+    }
+
+    private static byte[] ihdr(int width, int height, int bitDepth, int colorType, int interlace) {
+        return chunk("IHDR", ByteBuffer.allocate(13)
+                .putInt(width)
+                .putInt(height)
+                .put((byte) bitDepth)
+                .put((byte) colorType)
+                .put((byte) 0)
+                .put((byte) 0)
+                .put((byte) interlace)
+                .array());
+    }
+
+    private static byte[] iend() {
+        return chunk("IEND", new byte[0]);
+    }
+
+    private static byte[] chunk(String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        return ByteBuffer.allocate(12 + data.length)
+                .putInt(data.length)
+                .put(typeBytes)
+                .put(data)
+                .putInt((int) crc.getValue())
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
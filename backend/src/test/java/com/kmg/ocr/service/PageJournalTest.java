@@ -0,0 +1,227 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.model.OcrPageResult;
+import com.kmg.ocr.model.OcrWord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageJournalTest {
+    private static final String ITEM = "item-1";
+    private static final int FILE_HEADER_BYTES = 5;
+
+    @TempDir
+    Path tempDir;
+
+    private OcrProperties properties;
+    private PageJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OcrProperties();
+        properties.getCheckpoint().setJournalDir(tempDir.resolve("journal").toString());
+        journal = new PageJournal(properties);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void roundTripsPages(boolean compress) {
+        properties.getCheckpoint().setJournalCompress(compress);
+        OcrPageResult first = page(0, "첫 페이지 본문", 40);
+        OcrPageResult second = page(1, "", 0);
+        OcrPageResult third = page(2, "line one\nline two", 3);
+
+        journal.append(ITEM, 0, first);
+        journal.append(ITEM, 1, second);
+        journal.append(ITEM, 2, third);
+        journal.shutdown();
+
+        assertEquals(Map.of(0, first, 1, second, 2, third), journal.load(ITEM));
+    }
+
+    @Test
+    void truncatesTornLastRecord() throws IOException {
+        OcrPageResult first = page(0, "complete", 5);
+        OcrPageResult second = page(1, "torn", 5);
+        journal.append(ITEM, 0, first);
+        journal.force();
+        long afterFirst = Files.size(journalFile());
+        journal.append(ITEM, 1, second);
+        journal.shutdown();
+
+        truncate(journalFile(), Files.size(journalFile()) - 3);
+
+        assertEquals(Map.of(0, first), journal.load(ITEM));
+        assertEquals(afterFirst, Files.size(journalFile()));
+
+        journal.append(ITEM, 1, second);
+        journal.shutdown();
+        assertEquals(Map.of(0, first, 1, second), journal.load(ITEM));
+    }
+
+    @Test
+    void dropsTornRecordHeader() throws IOException {
+        OcrPageResult first = page(0, "complete", 5);
+        journal.append(ITEM, 0, first);
+        journal.force();
+        long afterFirst = Files.size(journalFile());
+        journal.append(ITEM, 1, page(1, "torn", 5));
+        journal.shutdown();
+
+        truncate(journalFile(), afterFirst + 7);
+
+        assertEquals(Map.of(0, first), journal.load(ITEM));
+        assertEquals(afterFirst, Files.size(journalFile()));
+    }
+
+    @Test
+    void stopsAtChecksumMismatch() throws IOException {
+        OcrPageResult first = page(0, "intact", 5);
+        journal.append(ITEM, 0, first);
+        journal.force();
+        long afterFirst = Files.size(journalFile());
+        journal.append(ITEM, 1, page(1, "corrupted", 5));
+        journal.append(ITEM, 2, page(2, "after corruption", 5));
+        journal.shutdown();
+
+        flipByte(journalFile(), afterFirst + 20);
+
+        assertEquals(Map.of(0, first), journal.load(ITEM));
+        assertEquals(afterFirst, Files.size(journalFile()));
+    }
+
+    @Test
+    void checksumMismatchInFirstRecordLeavesEmptyJournal() throws IOException {
+        journal.append(ITEM, 0, page(0, "corrupted", 5));
+        journal.shutdown();
+
+        flipByte(journalFile(), Files.size(journalFile()) - 1);
+
+        assertTrue(journal.load(ITEM).isEmpty());
+        assertEquals(FILE_HEADER_BYTES, Files.size(journalFile()));
+    }
+
+    @Test
+    void compactsSupersededPages() throws IOException {
+        OcrPageResult stale = page(0, "first attempt", 20);
+        OcrPageResult retried = page(0, "second attempt", 10);
+        OcrPageResult other = page(1, "other page", 10);
+        journal.append(ITEM, 0, stale);
+        journal.append(ITEM, 1, other);
+        journal.append(ITEM, 0, retried);
+        journal.shutdown();
+        long beforeCompaction = Files.size(journalFile());
+
+        assertEquals(Map.of(0, retried, 1, other), journal.load(ITEM));
+        assertTrue(Files.size(journalFile()) < beforeCompaction);
+        assertFalse(Files.exists(journalFile().resolveSibling(ITEM + ".journal.tmp")));
+
+        PageJournal fresh = new PageJournal(properties);
+        fresh.append("fresh", 0, retried);
+        fresh.append("fresh", 1, other);
+        fresh.shutdown();
+        assertEquals(-1, Files.mismatch(journalFile(), journalFile().resolveSibling("fresh.journal")));
+
+        assertEquals(Map.of(0, retried, 1, other), journal.load(ITEM));
+    }
+
+    @Test
+    void compactionDropsTornTail() throws IOException {
+        OcrPageResult retried = page(0, "second attempt", 10);
+        journal.append(ITEM, 0, page(0, "first attempt", 10));
+        journal.append(ITEM, 0, retried);
+        journal.append(ITEM, 1, page(1, "torn", 10));
+        journal.shutdown();
+        truncate(journalFile(), Files.size(journalFile()) - 3);
+
+        assertEquals(Map.of(0, retried), journal.load(ITEM));
+
+        PageJournal fresh = new PageJournal(properties);
+        fresh.append("fresh", 0, retried);
+        fresh.shutdown();
+        assertEquals(-1, Files.mismatch(journalFile(), journalFile().resolveSibling("fresh.journal")));
+    }
+
+    @Test
+    void failedCompactionKeepsRecoveredPages() throws IOException {
+        OcrPageResult retried = page(0, "second attempt", 10);
+        OcrPageResult other = page(1, "other page", 10);
+        journal.append(ITEM, 0, page(0, "first attempt", 10));
+        journal.append(ITEM, 1, other);
+        journal.append(ITEM, 0, retried);
+        journal.shutdown();
+        byte[] before = Files.readAllBytes(journalFile());
+        Files.createDirectories(journalFile().resolveSibling(ITEM + ".journal.tmp").resolve("blocker"));
+
+        assertEquals(Map.of(0, retried, 1, other), journal.load(ITEM));
+        assertArrayEquals(before, Files.readAllBytes(journalFile()));
+    }
+
+    @Test
+    void discardsJournalWithUnknownHeader() throws IOException {
+        Files.createDirectories(journalFile().getParent());
+        Files.write(journalFile(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18});
+
+        assertTrue(journal.load(ITEM).isEmpty());
+        assertFalse(Files.exists(journalFile()));
+    }
+
+    @Test
+    void deleteRemovesJournal() {
+        journal.append(ITEM, 0, page(0, "text", 1));
+        journal.delete(ITEM);
+
+        assertFalse(Files.exists(journalFile()));
+        assertTrue(journal.load(ITEM).isEmpty());
+    }
+
+    @Test
+    void disabledJournalLoadsNothing() {
+        journal.append(ITEM, 0, page(0, "text", 1));
+        journal.shutdown();
+        properties.getCheckpoint().setJournalEnabled(false);
+
+        assertTrue(journal.load(ITEM).isEmpty());
+    }
+
+    private Path journalFile() {
+        return tempDir.resolve("journal").resolve(ITEM + ".journal");
+    }
+
+    private static OcrPageResult page(int index, String text, int wordCount) {
+        List<OcrWord> words = new ArrayList<>();
+        for (int i = 0; i < wordCount; i++) {
+            words.add(new OcrWord(i % 3 == 0 ? "반복" : "word" + i, i * 1.5f, i * 0.25f, i * 1.5f + 10.125f, i * 0.25f + 12f));
+        }
+        return new OcrPageResult(Path.of("/pages", "page-" + index + ".png"), text, words);
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void flipByte(Path path, long offset) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[(int) offset] ^= 0x5A;
+        Files.write(path, bytes);
+    }
+}
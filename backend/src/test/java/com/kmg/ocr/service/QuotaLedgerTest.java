@@ -0,0 +1,119 @@
+package com.kmg.ocr.service;
+
+import com.kmg.ocr.config.OcrProperties;
+import com.kmg.ocr.config.SchemaMigrator;
+import com.kmg.ocr.repo.QuotaReservationRepository;
+import com.kmg.ocr.repo.SqliteReadPool;
+import com.kmg.ocr.repo.UsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuotaLedgerTest {
+    private static final String CREDENTIAL = "cred";
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private OcrProperties properties;
+    private SQLiteDataSource dataSource;
+    private UsageRepository usageRepository;
+    private String period;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("app.db"));
+        dataSource.setEnforceForeignKeys(true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new SchemaMigrator(jdbcTemplate).migrate();
+        jdbcTemplate.update("""
+                INSERT INTO credentials(id, fingerprint, file_path, file_name, created_at, updated_at)
+                VALUES (?, 'fp', '/keys/cred.json', 'cred.json', '', '')
+                """, CREDENTIAL);
+
+        properties = new OcrProperties();
+        properties.getReadPool().setEnabled(false);
+        properties.getQuota().setReservationBlock(50);
+        usageRepository = new UsageRepository(jdbcTemplate,
+                new SqliteReadPool(new DataSourceProperties(), jdbcTemplate, properties));
+        period = new TimeService(properties).currentPeriod();
+    }
+
+    @Test
+    void recoveryReturnsOnlyUnitsNotHandedOut() {
+        QuotaLedger crashed = ledger();
+        assertEquals(3, crashed.acquire(CREDENTIAL, 3));
+        assertEquals(4, crashed.acquire(CREDENTIAL, 4));
+        assertEquals(50, usedUnits());
+
+        ledger().recoverAfterRestart();
+
+        assertEquals(7, usedUnits());
+        assertEquals(0, reservationRows());
+    }
+
+    @Test
+    void recoveryReturnsReleasedUnits() {
+        QuotaLedger crashed = ledger();
+        assertEquals(10, crashed.acquire(CREDENTIAL, 10));
+        crashed.release(CREDENTIAL, 4);
+
+        ledger().recoverAfterRestart();
+
+        assertEquals(6, usedUnits());
+    }
+
+    @Test
+    void requestLargerThanBlockIsRecoveredExactly() {
+        QuotaLedger crashed = ledger();
+        assertEquals(2, crashed.acquire(CREDENTIAL, 2));
+        assertEquals(60, crashed.acquire(CREDENTIAL, 60));
+        assertTrue(usedUnits() >= 62);
+
+        ledger().recoverAfterRestart();
+
+        assertEquals(62, usedUnits());
+    }
+
+    @Test
+    void shutdownReturnsUnusedUnits() {
+        QuotaLedger ledger = ledger();
+        assertEquals(5, ledger.acquire(CREDENTIAL, 5));
+
+        ledger.shutdown();
+
+        assertEquals(5, usedUnits());
+        assertEquals(0, reservationRows());
+    }
+
+    private QuotaLedger ledger() {
+        return new QuotaLedger(
+                usageRepository,
+                new QuotaReservationRepository(jdbcTemplate),
+                new TimeService(properties),
+                properties,
+                new DataSourceTransactionManager(dataSource)
+        );
+    }
+
+    private int usedUnits() {
+        return jdbcTemplate.queryForObject(
+                "SELECT used_units FROM usage_monthly WHERE credential_id = ? AND period_pt = ?",
+                Integer.class, CREDENTIAL, period);
+    }
+
+    private int reservationRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM quota_reservations", Integer.class);
+    }
+}
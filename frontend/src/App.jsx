@@ -1,6 +1,28 @@
-import { useEffect, useMemo, useState } from 'react'
+import { useEffect, useMemo, useRef, useState } from 'react'
 
 const tabs = ['dashboard', 'credentials', 'queue', 'history']
+const historyPageSize = 20
+const eventTypes = [
+  'connected',
+  'resync',
+  'job-created',
+  'job-queued',
+  'job-started',
+  'job-stop-requested',
+  'job-stopped',
+  'job-completed',
+  'job-failed',
+  'item-started',
+  'item-progress',
+  'item-completed',
+  'discovery-progress',
+  'discovery-completed',
+  'hot-folder-ingested',
+  'hot-folder-published',
+  'hot-folder-paused',
+  'hot-folder-resumed',
+  'hot-folder-failed',
+]
 
 async function api(path, options = {}) {
   const res = await fetch(path, {
@@ -49,22 +71,31 @@ export default function App() {
   const [tab, setTab] = useState('dashboard')
   const [credentials, setCredentials] = useState([])
   const [jobs, setJobs] = useState([])
+  const [history, setHistory] = useState({ jobs: [], page: 0, size: historyPageSize, total: 0 })
+  const [jobDetails, setJobDetails] = useState({})
   const [links, setLinks] = useState(null)
   const [queueFolders, setQueueFolders] = useState([])
   const [manualPath, setManualPath] = useState('')
+  const [discoveryRoot, setDiscoveryRoot] = useState('')
+  const [discovery, setDiscovery] = useState(null)
   const [strategy, setStrategy] = useState('MAX_REMAINING')
   const [parallelism, setParallelism] = useState(2)
+  const [incremental, setIncremental] = useState(false)
   const [createdJobId, setCreatedJobId] = useState('')
   const [logs, setLogs] = useState([])
   const [error, setError] = useState('')
   const [queueNotice, setQueueNotice] = useState('')
   const [loading, setLoading] = useState(false)
+  const [sseConnected, setSseConnected] = useState(false)
+  const lastEventIdRef = useRef(null)
+  const historyPageRef = useRef(0)
 
   const runningJob = useMemo(() => jobs.find((j) => j.status === 'RUNNING'), [jobs])
+  const runningJobs = useMemo(() => jobs.filter((j) => j.status === 'RUNNING'), [jobs])
+  const queuedJobs = useMemo(() => jobs.filter((j) => j.status === 'QUEUED'), [jobs])
   const latestCompletedJob = useMemo(() => jobs.find((j) => j.status === 'COMPLETED') || null, [jobs])
   const runningItem = useMemo(() => {
-    if (!runningJob?.items?.length) return null
-    return runningJob.items.find((item) => item.status === 'RUNNING') || null
+    return runningJob?.runningItems?.[0] || null
   }, [runningJob])
   const runningFolderProgress = useMemo(() => {
     if (!runningJob || !runningItem) return '-'
@@ -84,24 +115,71 @@ export default function App() {
 
   useEffect(() => {
     refreshAll()
-    const eventSource = new EventSource('/api/events')
-    eventSource.onmessage = (event) => {
+    let eventSource = null
+    let retryId = null
+    let disposed = false
+
+    const handleEvent = (event) => {
+      if (event.lastEventId) {
+        lastEventIdRef.current = event.lastEventId
+      }
+      let payload
       try {
-        const payload = JSON.parse(event.data)
-        pushLog(`${payload.type}: ${payload.message || ''}`)
+        payload = JSON.parse(event.data)
       } catch {
         pushLog(event.data)
+        return
       }
-      refreshJobs()
-      refreshCredentials()
+
+      if (payload.type === 'connected') {
+        setSseConnected(true)
+        if (!lastEventIdRef.current && payload.payload?.latestEventId) {
+          lastEventIdRef.current = String(payload.payload.latestEventId)
+        }
+        return
+      }
+      if (payload.type === 'item-progress') {
+        applyItemProgress(payload.jobId, payload.payload)
+        return
+      }
+      if (payload.type === 'discovery-progress') {
+        setDiscovery(payload.payload)
+        return
+      }
+      if (payload.type.startsWith('hot-folder-')) {
+        pushLog(`${payload.type}: ${payload.message || ''} ${payload.payload?.pdfPath || payload.payload?.folder || ''}`)
+        refreshCredentials().catch(() => {})
+        return
+      }
+
+      pushLog(`${payload.type}: ${payload.message || ''}`)
+      refreshJobs().catch(() => {})
+      refreshCredentials().catch(() => {})
     }
-    eventSource.onerror = () => {
-      pushLog('SSE disconnected, retrying...')
+
+    const connect = () => {
+      const query = lastEventIdRef.current ? `?lastEventId=${encodeURIComponent(lastEventIdRef.current)}` : ''
+      eventSource = new EventSource(`/api/events${query}`)
+      eventTypes.forEach((type) => eventSource.addEventListener(type, handleEvent))
+      eventSource.onerror = () => {
+        setSseConnected(false)
+        pushLog('SSE disconnected, retrying...')
+        if (eventSource.readyState === EventSource.CLOSED && !disposed) {
+          retryId = window.setTimeout(connect, 3000)
+        }
+      }
+    }
+
+    connect()
+    return () => {
+      disposed = true
+      window.clearTimeout(retryId)
+      eventSource?.close()
     }
-    return () => eventSource.close()
   }, [])
 
   useEffect(() => {
+    if (sseConnected) return undefined
     const pollId = window.setInterval(async () => {
       try {
         await refreshJobs()
@@ -112,7 +190,20 @@ export default function App() {
     }, 2500)
 
     return () => window.clearInterval(pollId)
-  }, [])
+  }, [sseConnected])
+
+  function applyItemProgress(jobId, progress) {
+    if (!progress) return
+    setJobs((prev) => prev.map((job) => {
+      if (job.id !== jobId || !job.runningItems) return job
+      return {
+        ...job,
+        runningItems: job.runningItems.map((item) => (item.folderPath === progress.folder
+          ? { ...item, imageDone: progress.imageDone, imageTotal: progress.imageTotal }
+          : item)),
+      }
+    }))
+  }
 
   function pushLog(message) {
     setLogs((prev) => [{ message, ts: new Date().toISOString() }, ...prev].slice(0, 80))
@@ -136,8 +227,31 @@ export default function App() {
   }
 
   async function refreshJobs() {
-    const data = await api('/api/jobs')
-    setJobs(data)
+    const [active, completed, page] = await Promise.all([
+      api('/api/jobs?status=RUNNING,QUEUED&size=200'),
+      api('/api/jobs?status=COMPLETED&size=1'),
+      api(`/api/jobs?page=${historyPageRef.current}&size=${historyPageSize}`),
+    ])
+    setJobs([...active.jobs, ...completed.jobs])
+    setHistory(page)
+  }
+
+  async function changeHistoryPage(page) {
+    historyPageRef.current = Math.max(0, page)
+    try {
+      await refreshJobs()
+    } catch (e) {
+      setError(e.message)
+    }
+  }
+
+  async function loadJobDetails(jobId) {
+    try {
+      const data = await api(`/api/jobs/${jobId}`)
+      setJobDetails((prev) => ({ ...prev, [jobId]: data }))
+    } catch (e) {
+      setError(e.message)
+    }
   }
 
   async function refreshLinks() {
@@ -236,6 +350,7 @@ export default function App() {
         folders: queueFolders.map((f) => f.path),
         strategy,
         parallelism: Number(parallelism) || 2,
+        incremental,
       }
       const result = await api('/api/jobs', {
         method: 'POST',
@@ -252,6 +367,36 @@ export default function App() {
     }
   }
 
+  async function discoverJob(autoStart = false) {
+    if (!discoveryRoot.trim()) {
+      setError('루트 폴더 경로를 입력하세요.')
+      return
+    }
+    setError('')
+    setDiscovery({ root: discoveryRoot, directoriesScanned: 0, foldersFound: 0 })
+    try {
+      const result = await api('/api/jobs/discover', {
+        method: 'POST',
+        body: JSON.stringify({
+          root: discoveryRoot.trim(),
+          strategy,
+          parallelism: Number(parallelism) || 2,
+          incremental,
+        }),
+      })
+      setCreatedJobId(result.jobId)
+      pushLog(`Job created from discovery: ${result.jobId}`)
+      await refreshJobs()
+      if (autoStart) {
+        await startJob(result.jobId)
+      }
+    } catch (e) {
+      setError(e.message)
+    } finally {
+      setDiscovery(null)
+    }
+  }
+
   async function startJob(jobId = createdJobId) {
     if (!jobId) return
     try {
@@ -318,7 +463,8 @@ export default function App() {
             <div className="kv">
               <div><span>활성 키 수</span><strong>{credentials.filter((c) => c.status === 'ACTIVE').length}</strong></div>
               <div><span>총 남은 한도</span><strong>{credentials.reduce((acc, c) => acc + c.remainingUnits, 0)}</strong></div>
-              <div><span>실행 중 작업</span><strong>{runningJob ? runningJob.id : '없음'}</strong></div>
+              <div><span>실행 중 작업</span><strong>{runningJobs.length ? runningJobs.map((j) => j.id).join(', ') : '없음'}</strong></div>
+              <div><span>대기 중 작업</span><strong>{queuedJobs.length}</strong></div>
               <div><span>현재 폴더</span><strong>{runningFolderProgress}</strong></div>
               <div><span>현재 파일</span><strong>{runningFileProgress}</strong></div>
               <div><span>최근 완료 작업</span><strong>{latestCompletedJob ? latestCompletedJob.id : '없음'}</strong></div>
@@ -417,12 +563,34 @@ export default function App() {
                   onChange={(e) => setParallelism(e.target.value)}
                 />
               </label>
+              <label>
+                <input
+                  type="checkbox"
+                  checked={incremental}
+                  onChange={(e) => setIncremental(e.target.checked)}
+                />
+                변경된 이미지만 OCR
+              </label>
             </div>
             <div className="row">
               <button onClick={() => createJob(false)}>큐 생성</button>
               <button onClick={() => createJob(true)}>큐 생성 + 시작</button>
               <button onClick={() => setQueueFolders([])}>큐 비우기</button>
             </div>
+            <div className="row">
+              <input
+                placeholder="/path/to/archive_root (하위 폴더 일괄 탐색)"
+                value={discoveryRoot}
+                onChange={(e) => setDiscoveryRoot(e.target.value)}
+              />
+              <button onClick={() => discoverJob(false)} disabled={!!discovery}>탐색 후 큐 생성</button>
+              <button onClick={() => discoverJob(true)} disabled={!!discovery}>탐색 후 큐 생성 + 시작</button>
+            </div>
+            {discovery && (
+              <p className="muted">
+                탐색 중: 디렉터리 {discovery.directoriesScanned}개 확인, 이미지 폴더 {discovery.foldersFound}개 발견
+              </p>
+            )}
 
             <table>
               <thead>
@@ -450,18 +618,38 @@ export default function App() {
               <button onClick={() => startJob(createdJobId)} disabled={!createdJobId}>시작</button>
               <button onClick={() => stopJob(createdJobId || runningJob?.id)} disabled={!createdJobId && !runningJob}>중지</button>
             </div>
-            {runningJob && (
-              <div className="running">
-                <p><strong>Running:</strong> {runningJob.id}</p>
-                <p>{runningJob.processedItems}/{runningJob.totalItems} 폴더 완료</p>
+            {runningJobs.map((job) => (
+              <div className="running" key={job.id}>
+                <p><strong>Running:</strong> {job.id}</p>
+                <p>{job.processedItems}/{job.totalItems} 폴더 완료</p>
               </div>
-            )}
+            ))}
+            {queuedJobs.map((job) => (
+              <div className="running" key={job.id}>
+                <p><strong>Queued:</strong> {job.id}</p>
+                <p>{job.processedItems}/{job.totalItems} 폴더 완료</p>
+              </div>
+            ))}
           </Section>
         </div>
       )}
 
       {tab === 'history' && (
-        <Section title="작업 이력">
+        <Section
+          title="작업 이력"
+          right={(
+            <div className="history-links">
+              <button onClick={() => changeHistoryPage(history.page - 1)} disabled={history.page <= 0}>이전</button>
+              <span>{history.page + 1} / {Math.max(1, Math.ceil(history.total / history.size))}</span>
+              <button
+                onClick={() => changeHistoryPage(history.page + 1)}
+                disabled={(history.page + 1) * history.size >= history.total}
+              >
+                다음
+              </button>
+            </div>
+          )}
+        >
           <table>
             <thead>
               <tr>
@@ -474,7 +662,7 @@ export default function App() {
               </tr>
             </thead>
             <tbody>
-              {jobs.map((job) => (
+              {history.jobs.map((job) => (
                 <tr key={job.id}>
                   <td>{job.id}</td>
                   <td>{job.status}</td>
@@ -482,13 +670,17 @@ export default function App() {
                   <td>{job.lastError || job.stopReason || '-'}</td>
                   <td>
                     <div className="history-links">
-                      {job.items
-                        .filter((i) => i.pdfPath)
-                        .map((i) => (
-                          <a key={i.id} href={`file://${i.pdfPath}`} target="_blank" rel="noopener noreferrer">
-                            {i.queueIndex + 1}.pdf
-                          </a>
-                        ))}
+                      {jobDetails[job.id]
+                        ? jobDetails[job.id].items
+                          .filter((i) => i.pdfPath)
+                          .map((i) => (
+                            <a key={i.id} href={`file://${i.pdfPath}`} target="_blank" rel="noopener noreferrer">
+                              {i.queueIndex + 1}.pdf
+                            </a>
+                          ))
+                        : job.completedItems > 0 && (
+                          <button onClick={() => loadJobDetails(job.id)}>PDF {job.completedItems}개 보기</button>
+                        )}
                     </div>
                   </td>
                   <td>
@@ -497,7 +689,7 @@ export default function App() {
                         setCreatedJobId(job.id)
                         startJob(job.id)
                       }}
-                      disabled={!!runningJob && runningJob.id !== job.id}
+                      disabled={job.status === 'RUNNING' || job.status === 'QUEUED'}
                     >
                       재시작
                     </button>